@@ -6,15 +6,24 @@ import de.yanwittmann.nextstation.model.board.*;
 import de.yanwittmann.nextstation.model.card.GameCard;
 import de.yanwittmann.nextstation.model.score.ScoreContributor;
 import de.yanwittmann.nextstation.model.score.progress.ProgressScoreContributor;
+import de.yanwittmann.nextstation.util.LongHashSet;
+import de.yanwittmann.nextstation.util.LongObjectHashMap;
 import de.yanwittmann.nextstation.util.TextureAccess;
+import de.yanwittmann.nextstation.util.TextureProvider;
 import de.yanwittmann.nextstation.util.TextureProviderAdapterFactory;
 import de.yanwittmann.nextstation.util.TmpIntersection;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
 
 @Data
 public class GameBoard {
@@ -23,9 +32,11 @@ public class GameBoard {
     private int width, height;
 
     // board elements
-    private final List<BoardDistrict> districts = new ArrayList<>();
+    @Setter(AccessLevel.NONE)
+    private List<BoardDistrict> districts = new ArrayList<>();
     private final List<Station> stations = new ArrayList<>();
-    private final List<RailwayConnection> connections = new ArrayList<>();
+    @Setter(AccessLevel.NONE)
+    private List<RailwayConnection> connections = new ArrayList<>();
     private final List<RailwayConnectionIntersection> intersections = new ArrayList<>();
     private RiverLayout riverLayout = new RiverLayout();
 
@@ -51,6 +62,174 @@ public class GameBoard {
     // scoring progress:
     private ProgressScoreContributor progressScoreContributor;
 
+    // lookup of the station on each cell, built lazily and kept in sync by the station mutators. The lazy lookups of a
+    // board are only published once they are complete, so that boards may be read by several threads at once, changing
+    // a board still requires exclusive access to it.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile StationIndex stationIndex;
+    // width x height lookup of the smallest district containing each cell, built lazily and dropped on district changes
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile BoardDistrict[] districtGrid;
+    // undirected edge keys of all connections, see RailwayConnection.edgeKey()
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile LongHashSet connectionKeys;
+    // set by fork(): the list may be shared with other boards and is copied before this board changes it
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient boolean districtsShared;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient boolean connectionsShared;
+
+    public void setWidth(int width) {
+        this.width = width;
+        this.stationIndex = null;
+        this.districtGrid = null;
+    }
+
+    public void setHeight(int height) {
+        this.height = height;
+        this.stationIndex = null;
+        this.districtGrid = null;
+    }
+
+    /**
+     * Districts must be added and removed via {@link #addDistrict(BoardDistrict)} and
+     * {@link #removeDistrict(BoardDistrict)} to keep the cell lookup of {@link #findDistrict(int, int)} in sync.
+     */
+    public List<BoardDistrict> getDistricts() {
+        return Collections.unmodifiableList(districts);
+    }
+
+    /**
+     * Connections are stored as a set of undirected edges: add and remove them via
+     * {@link #addConnection(RailwayConnection)} and {@link #removeConnectionsIf(Predicate)}.
+     */
+    public List<RailwayConnection> getConnections() {
+        return Collections.unmodifiableList(connections);
+    }
+
+    /**
+     * @return false if the same edge, in either direction, is already part of the board
+     */
+    public boolean addConnection(RailwayConnection connection) {
+        if (!getConnectionKeys().add(connection.edgeKey())) {
+            return false;
+        }
+        ownConnections().add(connection);
+        return true;
+    }
+
+    public boolean hasConnection(int x1, int y1, int x2, int y2) {
+        return getConnectionKeys().contains(RailwayConnection.edgeKey(x1, y1, x2, y2));
+    }
+
+    public boolean removeConnectionsIf(Predicate<RailwayConnection> filter) {
+        final boolean removed = ownConnections().removeIf(filter);
+        if (removed) {
+            connectionKeys = null;
+        }
+        return removed;
+    }
+
+    private LongHashSet getConnectionKeys() {
+        LongHashSet keys = connectionKeys;
+        if (keys == null) {
+            keys = new LongHashSet(connections.size());
+            for (RailwayConnection connection : connections) {
+                keys.add(connection.edgeKey());
+            }
+            connectionKeys = keys;
+        }
+        return keys;
+    }
+
+    private List<RailwayConnection> ownConnections() {
+        if (connectionsShared) {
+            connections = new ArrayList<>(connections);
+            connectionsShared = false;
+        }
+        return connections;
+    }
+
+    public BoardDistrict addDistrict(BoardDistrict district) {
+        ownDistricts().add(district);
+        districtGrid = null;
+        return district;
+    }
+
+    public boolean removeDistrict(BoardDistrict district) {
+        districtGrid = null;
+        return ownDistricts().remove(district);
+    }
+
+    private List<BoardDistrict> ownDistricts() {
+        if (districtsShared) {
+            districts = new ArrayList<>(districts);
+            districtsShared = false;
+        }
+        return districts;
+    }
+
+    /**
+     * Creates a board with the same content as this one that can be changed independently, for building the
+     * deterministic part of a pipeline once and continuing it many times. The districts and connections are shared
+     * until either board changes them. The stations are copied, as the templates change them in place. Cards,
+     * intersections, the river points and the score contributors are shared, only the lists holding them are copied.
+     * <p>
+     * Several threads may fork the same board at once, as long as none of them changes it meanwhile.
+     */
+    public GameBoard fork() {
+        // only ever set to true, concurrent forks write the same value
+        if (!districtsShared) districtsShared = true;
+        if (!connectionsShared) connectionsShared = true;
+
+        final GameBoard fork = new GameBoard();
+        fork.width = width;
+        fork.height = height;
+        fork.districts = districts;
+        fork.districtsShared = true;
+        fork.connections = connections;
+        fork.connectionsShared = true;
+        for (Station station : stations) {
+            fork.stations.add(station.copy());
+        }
+        fork.intersections.addAll(intersections);
+        fork.riverLayout = riverLayout.copy();
+
+        fork.stationCards.addAll(stationCards);
+        fork.sharedObjectiveCards.addAll(sharedObjectiveCards);
+        fork.bonusPerPenCards.addAll(bonusPerPenCards);
+
+        fork.turnWiseScoreContributorA = turnWiseScoreContributorA;
+        fork.turnWiseScoreContributorB = turnWiseScoreContributorB;
+        fork.turnWiseScoreContributorC = turnWiseScoreContributorC;
+        fork.endGameScoreContributorA = endGameScoreContributorA;
+        fork.endGameScoreContributorB = endGameScoreContributorB;
+        fork.endGameScoreContributorC = endGameScoreContributorC;
+        fork.sharedObjectiveScoreContributorA = sharedObjectiveScoreContributorA;
+        fork.sharedObjectiveScoreContributorB = sharedObjectiveScoreContributorB;
+        fork.progressScoreContributor = progressScoreContributor;
+        return fork;
+    }
+
+    /**
+     * Stations must be added and removed via {@link #addStation(Station)} and {@link #removeStation(Station)} to keep
+     * the cell lookup of {@link #getStationAt(int, int)} in sync. Positions can only be changed by
+     * {@link #moveStation(Station, int, int)}.
+     */
+    public List<Station> getStations() {
+        return Collections.unmodifiableList(stations);
+    }
+
     public String serialize() {
         final Gson gson = new GsonBuilder()
                 .registerTypeAdapterFactory(new TextureProviderAdapterFactory())
@@ -58,46 +237,61 @@ public class GameBoard {
         return gson.toJson(this);
     }
 
+    /**
+     * Reads a board written by {@link #serialize()}. The texture properties are ignored, the lookup indexes are rebuilt
+     * on first use. Cards and score contributors cannot be read back, so this is meant for boards in the layout stages
+     * of the templates, before any cards or scores have been picked.
+     */
+    public static GameBoard deserialize(String json) {
+        final Gson gson = new GsonBuilder()
+                .registerTypeAdapterFactory(new TextureProviderAdapterFactory())
+                .create();
+        return gson.fromJson(json, GameBoard.class);
+    }
+
     public void writeSerialized(File dir) throws IOException {
+        writeSerialized(dir, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Writes the board data and the distinct textures of all elements that provide one. The directory is cleared
+     * first, so no images of earlier builds are left behind.
+     *
+     * @param parallelism the maximum number of threads that render and encode textures
+     */
+    public void writeSerialized(File dir, int parallelism) throws IOException {
         if (!dir.exists() && !dir.mkdirs()) {
             throw new IOException("Could not create directory: " + dir);
         }
         TextureAccess.cleanDirectory(dir);
+        TextureAccess.TextureData.writeDistinct(collectTextures(), new File(dir, "img"), parallelism);
 
-        // iterate over all elements that provide an icon and write them to the directory
-        final File imgDir = new File(dir, "img");
-        imgDir.mkdirs();
+        final String serialized = serialize();
+        Files.writeString(new File(dir, "board-data.json").toPath(), serialized);
+    }
 
-        for (Station station : stations) {
-            TextureAccess.TextureData.write(station, imgDir);
-        }
-        for (GameCard card : stationCards) {
-            TextureAccess.TextureData.write(card, imgDir);
-        }
-        for (GameCard card : sharedObjectiveCards) {
-            TextureAccess.TextureData.write(card, imgDir);
-        }
-        for (GameCard card : bonusPerPenCards) {
-            TextureAccess.TextureData.write(card, imgDir);
-        }
-        for (RailwayConnectionIntersection intersection : intersections) {
-            TextureAccess.TextureData.write(intersection, imgDir);
-        }
+    private List<TextureAccess.TextureData> collectTextures() {
+        final List<TextureProvider> providers = new ArrayList<>();
+        providers.addAll(stations);
+        providers.addAll(stationCards);
+        providers.addAll(sharedObjectiveCards);
+        providers.addAll(bonusPerPenCards);
+        providers.addAll(intersections);
+        providers.addAll(Arrays.asList(
+                turnWiseScoreContributorA, turnWiseScoreContributorB, turnWiseScoreContributorC,
+                endGameScoreContributorA, endGameScoreContributorB, endGameScoreContributorC,
+                sharedObjectiveScoreContributorA, sharedObjectiveScoreContributorB));
 
-        TextureAccess.TextureData.write(turnWiseScoreContributorA, imgDir);
-        TextureAccess.TextureData.write(turnWiseScoreContributorB, imgDir);
-        TextureAccess.TextureData.write(turnWiseScoreContributorC, imgDir);
-        TextureAccess.TextureData.write(endGameScoreContributorA, imgDir);
-        TextureAccess.TextureData.write(endGameScoreContributorB, imgDir);
-        TextureAccess.TextureData.write(endGameScoreContributorC, imgDir);
-        TextureAccess.TextureData.write(sharedObjectiveScoreContributorA, imgDir);
-        TextureAccess.TextureData.write(sharedObjectiveScoreContributorB, imgDir);
+        final List<TextureAccess.TextureData> textures = new ArrayList<>();
+        for (TextureProvider provider : providers) {
+            if (provider != null) {
+                textures.add(provider.getTexture());
+            }
+        }
         if (progressScoreContributor != null) {
-            TextureAccess.TextureData.write(progressScoreContributor.getTextures(), imgDir);
+            textures.addAll(progressScoreContributor.getTextures());
         }
-
-        final String serialized = serialize();
-        Files.writeString(new File(dir, "board-data.json").toPath(), serialized);
+        return textures;
     }
 
     public Station getClosestStation(int x, int y) {
@@ -114,19 +308,95 @@ public class GameBoard {
     }
 
     public Station getStationAt(int x, int y) {
+        final StationIndex index = getStationIndex();
+        if (isOnGrid(x, y)) {
+            return index.grid[y * width + x];
+        }
+        return index.outsideGrid == 0 ? null : findStationAtLinear(x, y, null);
+    }
+
+    private Station findStationAtLinear(int x, int y, Station exclude) {
         for (Station station : stations) {
-            if (station.getX() == x && station.getY() == y) {
+            if (station != exclude && station.getX() == x && station.getY() == y) {
                 return station;
             }
         }
         return null;
     }
 
+    private boolean isOnGrid(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    private StationIndex getStationIndex() {
+        StationIndex index = stationIndex;
+        if (index == null) {
+            index = new StationIndex(new Station[Math.max(0, width) * Math.max(0, height)]);
+            for (Station station : stations) {
+                indexStation(index, station);
+            }
+            stationIndex = index;
+        }
+        return index;
+    }
+
+    private void indexStation(StationIndex index, Station station) {
+        if (isOnGrid(station.getX(), station.getY())) {
+            final int cell = station.getY() * width + station.getX();
+            // the first station on a cell wins, same as the linear lookup
+            if (index.grid[cell] == null) {
+                index.grid[cell] = station;
+            }
+        } else {
+            index.outsideGrid++;
+        }
+    }
+
+    private void unindexStation(StationIndex index, Station station) {
+        if (isOnGrid(station.getX(), station.getY())) {
+            final int cell = station.getY() * width + station.getX();
+            if (index.grid[cell] == station) {
+                // another station may share the cell
+                index.grid[cell] = findStationAtLinear(station.getX(), station.getY(), station);
+            }
+        } else {
+            index.outsideGrid--;
+        }
+    }
+
+    private static class StationIndex {
+        // width x height
+        private final Station[] grid;
+        private int outsideGrid;
+
+        private StationIndex(Station[] grid) {
+            this.grid = grid;
+        }
+    }
+
+    private final static StationMoveAccess STATION_MOVE_ACCESS = new StationMoveAccess();
+
+    /**
+     * Only the board can create this, so that stations can only be moved via {@link #moveStation(Station, int, int)},
+     * which keeps the cell lookup in sync.
+     */
+    public final static class StationMoveAccess {
+        private StationMoveAccess() {
+        }
+    }
+
     public BoardDistrict findDistrict(Station station) {
         return findDistrict(station.getX(), station.getY());
     }
 
     public BoardDistrict findDistrict(int x, int y) {
+        if (isOnGrid(x, y)) {
+            return getDistrictGrid()[y * width + x];
+        }
+        return findDistrictLinear(x, y);
+    }
+
+    private BoardDistrict findDistrictLinear(int x, int y) {
         // pick the smallest one that contains the station
         int smallestArea = Integer.MAX_VALUE;
         BoardDistrict smallestDistrict = null;
@@ -144,10 +414,35 @@ public class GameBoard {
         return smallestDistrict;
     }
 
+    private BoardDistrict[] getDistrictGrid() {
+        BoardDistrict[] grid = districtGrid;
+        if (grid == null) {
+            grid = new BoardDistrict[Math.max(0, width) * Math.max(0, height)];
+            // same rule as the linear lookup: the first district with the strictly smallest area wins
+            for (BoardDistrict district : districts) {
+                final int area = district.area();
+                final int minX = Math.max(0, district.getX());
+                final int minY = Math.max(0, district.getY());
+                final int maxX = Math.min(width, district.getX() + district.getWidth());
+                final int maxY = Math.min(height, district.getY() + district.getHeight());
+                for (int y = minY; y < maxY; y++) {
+                    for (int x = minX; x < maxX; x++) {
+                        final int cell = y * width + x;
+                        if (grid[cell] == null || area < grid[cell].area()) {
+                            grid[cell] = district;
+                        }
+                    }
+                }
+            }
+            districtGrid = grid;
+        }
+        return grid;
+    }
+
     public Map<BoardDistrict, Set<Station>> computeStationsPerDistrict() {
         final Map<BoardDistrict, Set<Station>> stationsPerDistrict = new LinkedHashMap<>();
         for (BoardDistrict district : districts) {
-            stationsPerDistrict.put(district, new HashSet<>());
+            stationsPerDistrict.put(district, new LinkedHashSet<>());
         }
         for (Station station : stations) {
             final BoardDistrict district = findDistrict(station);
@@ -159,19 +454,95 @@ public class GameBoard {
     }
 
     public List<TmpIntersection> findTrueConnectionIntersectionsInDistrict(BoardDistrict district) {
-        final Map<Map.Entry<Integer, Integer>, TmpIntersection> intersections = new HashMap<>();
-        // iterate over all connections to check if the lines intersect, do not use the "intersections" list for this, this is only for visual representation
-        for (int i = 0; i < connections.size(); i++) {
-            final RailwayConnection connectionA = connections.get(i);
-            for (int j = i + 1; j < connections.size(); j++) {
-                final RailwayConnection connectionB = connections.get(j);
-                final Map.Entry<Integer, Integer> intersection = connectionA.intersection(connectionB);
-                if (intersection != null && district.containsGeometrically(intersection.getKey(), intersection.getValue())) {
+        final List<TmpIntersection> intersections = findTrueConnectionIntersections();
+        intersections.removeIf(intersection -> !district.containsGeometrically(intersection.getX(), intersection.getY()));
+        return intersections;
+    }
+
+    /**
+     * Runs {@link #findTrueConnectionIntersections()} once and assigns every intersection to all districts that
+     * geometrically contain it, like {@link #findTrueConnectionIntersectionsInDistrict(BoardDistrict)} would.
+     */
+    public Map<BoardDistrict, List<TmpIntersection>> findTrueConnectionIntersectionsPerDistrict() {
+        final Map<BoardDistrict, List<TmpIntersection>> intersectionsPerDistrict = new LinkedHashMap<>();
+        for (BoardDistrict district : districts) {
+            intersectionsPerDistrict.put(district, new ArrayList<>());
+        }
+        for (TmpIntersection intersection : findTrueConnectionIntersections()) {
+            for (BoardDistrict district : districts) {
+                if (district.containsGeometrically(intersection.getX(), intersection.getY())) {
+                    intersectionsPerDistrict.get(district).add(intersection);
+                }
+            }
+        }
+        return intersectionsPerDistrict;
+    }
+
+    /**
+     * Finds all points where two connections cross that are not occupied by a station.
+     * Do not use the "intersections" list for this, it is only for visual representation.
+     * <p>
+     * Instead of testing all pairs of connections, every connection is put into the buckets of a uniform grid that its
+     * bounding box overlaps. Only connections sharing a bucket can intersect, since the intersection point lies within
+     * both bounding boxes. A pair is only accepted in the bucket that contains its intersection point, so that pairs
+     * sharing several buckets are counted once.
+     */
+    public List<TmpIntersection> findTrueConnectionIntersections() {
+        final int count = connections.size();
+        if (count < 2) {
+            return new ArrayList<>();
+        }
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (RailwayConnection connection : connections) {
+            minX = Math.min(minX, Math.min(connection.getX1(), connection.getX2()));
+            minY = Math.min(minY, Math.min(connection.getY1(), connection.getY2()));
+            maxX = Math.max(maxX, Math.max(connection.getX1(), connection.getX2()));
+            maxY = Math.max(maxY, Math.max(connection.getY1(), connection.getY2()));
+        }
+        final int columns = (maxX - minX) / INTERSECTION_BUCKET_SIZE + 1;
+        final int rows = (maxY - minY) / INTERSECTION_BUCKET_SIZE + 1;
+
+        // compact bucket lists: bucketStart[b] .. bucketStart[b + 1] indexes into bucketEntries
+        final int[] bucketStart = new int[columns * rows + 1];
+        for (RailwayConnection connection : connections) {
+            forEachBucket(connection, minX, minY, columns, bucket -> bucketStart[bucket + 1]++);
+        }
+        for (int b = 0; b < columns * rows; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        final int[] bucketEntries = new int[bucketStart[columns * rows]];
+        final int[] bucketFill = Arrays.copyOf(bucketStart, columns * rows);
+        for (int i = 0; i < count; i++) {
+            final int connectionIndex = i;
+            // connections are added in list order, pairs are therefore always tested as (lower index, higher index)
+            forEachBucket(connections.get(i), minX, minY, columns, bucket -> bucketEntries[bucketFill[bucket]++] = connectionIndex);
+        }
+
+        final LongObjectHashMap<TmpIntersection> intersections = new LongObjectHashMap<>();
+        for (int bucket = 0; bucket < columns * rows; bucket++) {
+            for (int a = bucketStart[bucket]; a < bucketStart[bucket + 1]; a++) {
+                final RailwayConnection connectionA = connections.get(bucketEntries[a]);
+                for (int b = a + 1; b < bucketStart[bucket + 1]; b++) {
+                    final RailwayConnection connectionB = connections.get(bucketEntries[b]);
+                    final long intersection = connectionA.intersectionPacked(connectionB);
+                    if (intersection == RailwayConnection.NO_INTERSECTION) {
+                        continue;
+                    }
+                    final int x = RailwayConnection.unpackX(intersection);
+                    final int y = RailwayConnection.unpackY(intersection);
+                    if ((y - minY) / INTERSECTION_BUCKET_SIZE * columns + (x - minX) / INTERSECTION_BUCKET_SIZE != bucket) {
+                        continue;
+                    }
                     // intersection must not be a station
-                    if (getStationAt(intersection.getKey(), intersection.getValue()) != null) {
+                    if (getStationAt(x, y) != null) {
                         continue;
                     }
-                    final TmpIntersection tmpIntersection = intersections.computeIfAbsent(intersection, e -> new TmpIntersection(intersection.getKey(), intersection.getValue()));
+                    TmpIntersection tmpIntersection = intersections.get(intersection);
+                    if (tmpIntersection == null) {
+                        tmpIntersection = new TmpIntersection(x, y);
+                        intersections.put(intersection, tmpIntersection);
+                    }
                     // add directions
                     tmpIntersection.getDirections().add(connectionA.getDirection());
                     tmpIntersection.getDirections().add(connectionB.getDirection());
@@ -183,6 +554,20 @@ public class GameBoard {
         return new ArrayList<>(intersections.values());
     }
 
+    private final static int INTERSECTION_BUCKET_SIZE = 4;
+
+    private static void forEachBucket(RailwayConnection connection, int minX, int minY, int columns, IntConsumer consumer) {
+        final int fromColumn = (Math.min(connection.getX1(), connection.getX2()) - minX) / INTERSECTION_BUCKET_SIZE;
+        final int toColumn = (Math.max(connection.getX1(), connection.getX2()) - minX) / INTERSECTION_BUCKET_SIZE;
+        final int fromRow = (Math.min(connection.getY1(), connection.getY2()) - minY) / INTERSECTION_BUCKET_SIZE;
+        final int toRow = (Math.max(connection.getY1(), connection.getY2()) - minY) / INTERSECTION_BUCKET_SIZE;
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                consumer.accept(row * columns + column);
+            }
+        }
+    }
+
     public BoardDistrict getClosestDistrict(int centerX, int centerY) {
         BoardDistrict closestDistrict = null;
         double closestDistance = Double.MAX_VALUE;
@@ -203,8 +588,40 @@ public class GameBoard {
     }
 
     public Station addStation(int x, int y, Station.StationType type) {
-        final Station e = new Station(x, y, type, false, -1);
-        stations.add(e);
-        return e;
+        return addStation(new Station(x, y, type, false, -1));
+    }
+
+    public Station addStation(Station station) {
+        stations.add(station);
+        final StationIndex index = stationIndex;
+        if (index != null) {
+            indexStation(index, station);
+        }
+        return station;
+    }
+
+    public boolean removeStation(Station station) {
+        for (int i = 0; i < stations.size(); i++) {
+            if (stations.get(i) == station) {
+                stations.remove(i);
+                final StationIndex index = stationIndex;
+                if (index != null) {
+                    unindexStation(index, station);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void moveStation(Station station, int x, int y) {
+        final StationIndex index = stationIndex;
+        if (index != null) {
+            unindexStation(index, station);
+        }
+        station.moveTo(STATION_MOVE_ACCESS, x, y);
+        if (index != null) {
+            indexStation(index, station);
+        }
     }
 }
@@ -8,13 +8,42 @@ import java.util.Map;
 @Data
 @AllArgsConstructor
 public class RailwayConnection {
+    /**
+     * Returned by {@link #intersectionPacked(RailwayConnection)} if the connections do not cross.
+     * Equals the packed point (Integer.MIN_VALUE, 0), which cannot lie on a board.
+     */
+    public final static long NO_INTERSECTION = Long.MIN_VALUE;
+
     private int x1, y1, x2, y2;
 
     public RailwayConnection(Station a, Station b) {
         this(a.getX(), a.getY(), b.getX(), b.getY());
     }
 
+    /**
+     * Identifies the undirected edge between the two end points: both directions of a connection have the same key.
+     * Coordinates are packed into 16 bits each, which supports boards of up to 65536 cells per side.
+     */
+    public long edgeKey() {
+        return edgeKey(x1, y1, x2, y2);
+    }
+
+    public static long edgeKey(int x1, int y1, int x2, int y2) {
+        final long a = ((long) (x1 & 0xFFFF) << 16) | (y1 & 0xFFFF);
+        final long b = ((long) (x2 & 0xFFFF) << 16) | (y2 & 0xFFFF);
+        return a <= b ? (a << 32) | b : (b << 32) | a;
+    }
+
     public Map.Entry<Integer, Integer> intersection(RailwayConnection other) {
+        final long point = intersectionPacked(other);
+        return point == NO_INTERSECTION ? null : Map.entry(unpackX(point), unpackY(point));
+    }
+
+    /**
+     * Same as {@link #intersection(RailwayConnection)}, but returns the crossing point packed via
+     * {@link #packPoint(int, int)} or {@link #NO_INTERSECTION}, without allocating.
+     */
+    public long intersectionPacked(RailwayConnection other) {
         int x3 = other.getX1();
         int y3 = other.getY1();
         int x4 = other.getX2();
@@ -26,15 +55,27 @@ public class RailwayConnection {
         int y2 = this.getY2();
 
         int denominator = ((x1 - x2) * (y3 - y4)) - ((y1 - y2) * (x3 - x4));
-        if (denominator == 0) return null;
+        if (denominator == 0) return NO_INTERSECTION;
 
         int x = (((x1 * y2) - (y1 * x2)) * (x3 - x4) - (x1 - x2) * ((x3 * y4) - (y3 * x4))) / denominator;
         int y = (((x1 * y2) - (y1 * x2)) * (y3 - y4) - (y1 - y2) * ((x3 * y4) - (y3 * x4))) / denominator;
 
-        if (x < Math.min(x1, x2) || x > Math.max(x1, x2) || x < Math.min(x3, x4) || x > Math.max(x3, x4)) return null;
-        if (y < Math.min(y1, y2) || y > Math.max(y1, y2) || y < Math.min(y3, y4) || y > Math.max(y3, y4)) return null;
+        if (x < Math.min(x1, x2) || x > Math.max(x1, x2) || x < Math.min(x3, x4) || x > Math.max(x3, x4)) return NO_INTERSECTION;
+        if (y < Math.min(y1, y2) || y > Math.max(y1, y2) || y < Math.min(y3, y4) || y > Math.max(y3, y4)) return NO_INTERSECTION;
+
+        return packPoint(x, y);
+    }
+
+    public static long packPoint(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    public static int unpackX(long point) {
+        return (int) (point >> 32);
+    }
 
-        return Map.entry(x, y);
+    public static int unpackY(long point) {
+        return (int) point;
     }
 
     public RailwayConnectionIntersection.Direction getDirection() {
@@ -6,6 +6,9 @@ import lombok.Getter;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
+
+import static de.yanwittmann.nextstation.util.GeneralUtil.randomElement;
 
 @Data
 public class RiverLayout {
@@ -23,6 +26,12 @@ public class RiverLayout {
         }
     }
 
+    public RiverLayout copy() {
+        final RiverLayout copy = new RiverLayout();
+        copy.path.addAll(path);
+        return copy;
+    }
+
     public float pathLength() {
         float length = 0;
         for (int i = 1; i < path.size(); i++) {
@@ -60,32 +69,28 @@ public class RiverLayout {
             return dx != 0 && dy != 0;
         }
 
-        public Direction divergeChance(float chance) {
-            if (Math.random() < chance) {
+        public Direction divergeChance(float chance, SplittableRandom random) {
+            if (random.nextDouble() < chance) {
                 switch (this) {
                     case UP:
-                        return randomElement(UP_RIGHT, LEFT_UP);
+                        return randomElement(random, UP_RIGHT, LEFT_UP);
                     case RIGHT:
-                        return randomElement(UP_RIGHT, RIGHT_DOWN);
+                        return randomElement(random, UP_RIGHT, RIGHT_DOWN);
                     case DOWN:
-                        return randomElement(RIGHT_DOWN, DOWN_LEFT);
+                        return randomElement(random, RIGHT_DOWN, DOWN_LEFT);
                     case LEFT:
-                        return randomElement(DOWN_LEFT, LEFT_UP);
+                        return randomElement(random, DOWN_LEFT, LEFT_UP);
                     case UP_RIGHT:
-                        return randomElement(UP, RIGHT);
+                        return randomElement(random, UP, RIGHT);
                     case RIGHT_DOWN:
-                        return randomElement(RIGHT, DOWN);
+                        return randomElement(random, RIGHT, DOWN);
                     case DOWN_LEFT:
-                        return randomElement(DOWN, LEFT);
+                        return randomElement(random, DOWN, LEFT);
                     case LEFT_UP:
-                        return randomElement(LEFT, UP);
+                        return randomElement(random, LEFT, UP);
                 }
             }
             return this;
         }
-
-        private static <T> T randomElement(T... array) {
-            return array[(int) (Math.random() * array.length)];
-        }
     }
 }
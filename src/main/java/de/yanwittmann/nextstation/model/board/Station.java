@@ -1,16 +1,23 @@
 package de.yanwittmann.nextstation.model.board;
 
+import de.yanwittmann.nextstation.model.GameBoard;
 import de.yanwittmann.nextstation.util.TextureAccess;
 import de.yanwittmann.nextstation.util.TextureProvider;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
+import lombok.Setter;
 
 import java.awt.*;
+import java.util.Objects;
+import java.util.SplittableRandom;
 
 @Data
 @AllArgsConstructor
 public class Station implements TextureProvider {
+    // boards look stations up by their cell, see moveTo
+    @Setter(AccessLevel.NONE)
     private int x, y;
     private StationType type;
     private boolean isMonument;
@@ -37,8 +44,21 @@ public class Station implements TextureProvider {
         return base.overlay(symbol);
     }
 
-    public static Station randomType(int x, int y) {
-        return new Station(x, y, StationType.random(), false, -1);
+    /**
+     * Use {@link GameBoard#moveStation(Station, int, int)} instead, which keeps the cell lookup of the board in sync.
+     */
+    public void moveTo(GameBoard.StationMoveAccess access, int x, int y) {
+        Objects.requireNonNull(access, "Stations can only be moved by their board");
+        this.x = x;
+        this.y = y;
+    }
+
+    public Station copy() {
+        return new Station(x, y, type, isMonument, startingPosition);
+    }
+
+    public static Station randomType(int x, int y, SplittableRandom random) {
+        return new Station(x, y, StationType.random(random), false, -1);
     }
 
     public static Station ofType(int x, int y, StationType type) {
@@ -57,8 +77,9 @@ public class Station implements TextureProvider {
 
         private final TextureAccess.TextureData texture;
 
-        public static StationType random() {
-            return StationType.values()[(int) (Math.random() * StationType.values().length - 1)];
+        public static StationType random(SplittableRandom random) {
+            // joker is the last value and excluded
+            return StationType.values()[random.nextInt(StationType.values().length - 1)];
         }
     }
 }
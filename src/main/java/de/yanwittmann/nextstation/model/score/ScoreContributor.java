@@ -22,17 +22,11 @@ public abstract class ScoreContributor implements TextureProvider {
     public TextureAccess.TextureData getTexture() {
         TextureAccess.TextureData texture = getBaseTexture();
         if (multiplier > 1) {
-            int multiplierCircleDimensions = (int) (texture.getImage().getWidth() / 100f * 50);
-            TextureAccess.TextureData multiplierCircle = TextureAccess.TexturesIndex.SCORE_CIRCLE.get()
+            final TextureAccess.TextureData multiplierCircle = TextureAccess.TexturesIndex.SCORE_CIRCLE.get()
                     .tintNonTransparent(multiplierColor, 0.8f)
-                    .addText(String.valueOf(multiplier), new Font("Arial", Font.BOLD, 70), Color.WHITE, 0.5f, 0.42f, "center")
-                    .scale(multiplierCircleDimensions, multiplierCircleDimensions);
-
-            texture = texture
-                    .pad(new Color(0, 0, 0, 0), 20, multiplierCircle.getImage().getWidth() / 2 + 1, 0, 0)
-                    .overlay(multiplierCircle,
-                            texture.getImage().getWidth() - multiplierCircle.getImage().getWidth() / 2, 0,
-                            multiplierCircle.getImage().getWidth(), multiplierCircle.getImage().getHeight());
+                    .addText(String.valueOf(multiplier), new Font("Arial", Font.BOLD, 70), Color.WHITE, 0.5f, 0.42f, "center");
+            // laid out relative to the width of the base texture, so the path is known without rendering it
+            texture = texture.withBadge(multiplierCircle, 50, 20);
         }
         return texture;
     }
@@ -0,0 +1,275 @@
+package de.yanwittmann.nextstation.setup;
+
+import de.yanwittmann.nextstation.model.GameBoard;
+import de.yanwittmann.nextstation.model.board.BoardDistrict;
+import de.yanwittmann.nextstation.model.board.Station;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+/**
+ * Local search on a single generated board: stations are relocated, shifted and swap their types in place and the
+ * changes are kept or rolled back following a simulated annealing acceptance rule. Stations never leave their district
+ * and types are only swapped, so the number of stations per district and per type that the generator produced stays
+ * the same.
+ * <p>
+ * The moves draw from the {@link BoardTemplates#getRandom() random stream of the board}, a seeded board therefore
+ * always anneals to the same result.
+ * <p>
+ * Only the station layout is annealed: connections, intersections and the river refer to station positions and are
+ * not moved along, so boards that already have them are rejected. Anneal the board right after the station stages and
+ * generate the rest on the annealed layout.
+ */
+@Slf4j
+public class BoardAnnealer {
+    // attempts to find a free target cell before a move is given up
+    private final static int MAX_TARGET_ATTEMPTS = 8;
+
+    private final BoardTemplates board;
+    private final GameBoard gameBoard;
+    private final Function<BoardTemplates, Integer> boardScorer;
+    private final boolean maximize;
+    private final AnnealingOptions options;
+    private final SplittableRandom random;
+
+    public BoardAnnealer(BoardTemplates board, Function<BoardTemplates, Integer> boardScorer, boolean maximize, AnnealingOptions options) {
+        requireStationLayoutOnly(board.getBoard());
+        this.board = board;
+        this.gameBoard = board.getBoard();
+        this.boardScorer = boardScorer;
+        this.maximize = maximize;
+        this.options = options;
+        this.random = board.getRandom();
+    }
+
+    /**
+     * Anneals the board in place and leaves it in the best state that was found.
+     * If the scorer is an {@link IncrementalBoardScorer}, moves are evaluated via their score delta and only applied
+     * to the board when they are accepted, otherwise every move is applied and the whole board is scored again.
+     */
+    public BoardTemplates run() {
+        final List<Station> stations = gameBoard.getStations();
+        final int stationCount = stations.size();
+        if (stationCount == 0 || options.maxIterations <= 0) {
+            return board;
+        }
+        final int[] bestX = new int[stationCount];
+        final int[] bestY = new int[stationCount];
+        final Station.StationType[] bestTypes = new Station.StationType[stationCount];
+
+        final IncrementalBoardScorer.Evaluation evaluation = boardScorer instanceof IncrementalBoardScorer ? ((IncrementalBoardScorer) boardScorer).evaluate(board) : null;
+        int currentScore = evaluation != null ? evaluation.getScore() : boardScorer.apply(board);
+        int bestScore = currentScore;
+        snapshot(stations, bestX, bestY, bestTypes);
+
+        final Move move = new Move();
+        int accepted = 0;
+        final int logInterval = Math.max(1, options.maxIterations / 10);
+        for (int i = 0; i < options.maxIterations; i++) {
+            final double temperature = options.coolingSchedule.temperature(options.startTemperature, options.endTemperature, (double) i / options.maxIterations);
+            if (!proposeRandomMove(gameBoard, random, options.relocateWeight, options.shiftWeight, options.retypeWeight, stations.get(random.nextInt(stationCount)), move)) continue;
+
+            final int score;
+            if (evaluation == null) {
+                move.apply(gameBoard);
+                score = boardScorer.apply(board);
+            } else if (move.isTypeSwap()) {
+                // the second station is scored on top of the first one, which is rolled back if the swap is rejected
+                move.station.setType(move.type);
+                score = currentScore + evaluation.changeType(move.station, move.type) + evaluation.typeChangeDelta(move.other, move.previousType);
+            } else {
+                score = currentScore + evaluation.moveDelta(move.station, move.x, move.y);
+            }
+
+            final int improvement = maximize ? score - currentScore : currentScore - score;
+            if (improvement >= 0 || random.nextDouble() < Math.exp(improvement / temperature)) {
+                if (evaluation != null && move.isTypeSwap()) {
+                    move.other.setType(move.previousType);
+                    evaluation.changeType(move.other, move.previousType);
+                } else if (evaluation != null) {
+                    move.apply(gameBoard);
+                    evaluation.move(move.station, move.x, move.y);
+                }
+                currentScore = score;
+                accepted++;
+                if (maximize ? score > bestScore : score < bestScore) {
+                    bestScore = score;
+                    snapshot(stations, bestX, bestY, bestTypes);
+                }
+            } else if (evaluation == null) {
+                move.revert(gameBoard);
+            } else if (move.isTypeSwap()) {
+                move.station.setType(move.previousType);
+                evaluation.changeType(move.station, move.previousType);
+            }
+
+            if ((i + 1) % logInterval == 0) {
+                log.info("[{}/{}] [T {}] current: {}, best: {}, accepted: {}",
+                        String.format("%6d", i + 1), options.maxIterations, String.format("%.3f", temperature), currentScore, bestScore, accepted);
+            }
+        }
+
+        restore(stations, bestX, bestY, bestTypes);
+        return board;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the board has parts that depend on the station positions
+     */
+    static void requireStationLayoutOnly(GameBoard gameBoard) {
+        final boolean hasRiver = gameBoard.getRiverLayout() != null && !gameBoard.getRiverLayout().getPath().isEmpty();
+        if (!gameBoard.getConnections().isEmpty() || !gameBoard.getIntersections().isEmpty() || hasRiver) {
+            throw new IllegalArgumentException("Only station layouts can be changed, the board already has "
+                                               + gameBoard.getConnections().size() + " connections, "
+                                               + gameBoard.getIntersections().size() + " intersections and "
+                                               + (hasRiver ? "a" : "no") + " river");
+        }
+    }
+
+    /**
+     * Picks a random relocation, shift or type swap with another station for the station with the given relative
+     * chances. Also used by the {@link BoardBreeder} to mutate its boards.
+     *
+     * @return false if no move could be found for the station
+     */
+    static boolean proposeRandomMove(GameBoard gameBoard, SplittableRandom random, int relocateWeight, int shiftWeight, int retypeWeight, Station station, Move move) {
+        final int totalWeight = relocateWeight + shiftWeight + retypeWeight;
+        if (totalWeight <= 0) return false;
+        final int pick = random.nextInt(totalWeight);
+        move.station = station;
+        move.other = null;
+        move.previousX = station.getX();
+        move.previousY = station.getY();
+        move.previousType = station.getType();
+
+        if (pick < relocateWeight + shiftWeight) {
+            final BoardDistrict district = gameBoard.findDistrict(station);
+            final boolean relocate = pick < relocateWeight;
+            for (int attempt = 0; attempt < MAX_TARGET_ATTEMPTS; attempt++) {
+                final int x, y;
+                if (relocate) {
+                    x = district == null ? random.nextInt(gameBoard.getWidth()) : district.getX() + random.nextInt(district.getWidth());
+                    y = district == null ? random.nextInt(gameBoard.getHeight()) : district.getY() + random.nextInt(district.getHeight());
+                } else {
+                    final int[] direction = BoardTemplates.NEIGHBOR_DIRECTIONS[random.nextInt(BoardTemplates.NEIGHBOR_DIRECTIONS.length)];
+                    x = station.getX() + direction[0];
+                    y = station.getY() + direction[1];
+                }
+                if (isFreeCellOfDistrict(gameBoard, x, y, district)) {
+                    move.x = x;
+                    move.y = y;
+                    move.type = move.previousType;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // swapping keeps the number of stations per type that the generator distributed
+        if (station.getType() == Station.StationType.JOKER) return false;
+        final List<Station> stations = gameBoard.getStations();
+        for (int attempt = 0; attempt < MAX_TARGET_ATTEMPTS; attempt++) {
+            final Station other = stations.get(random.nextInt(stations.size()));
+            if (other.getType() != Station.StationType.JOKER && other.getType() != station.getType()) {
+                move.other = other;
+                move.x = move.previousX;
+                move.y = move.previousY;
+                move.type = other.getType();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isFreeCellOfDistrict(GameBoard gameBoard, int x, int y, BoardDistrict district) {
+        return x >= 0 && y >= 0 && x < gameBoard.getWidth() && y < gameBoard.getHeight()
+               && gameBoard.getStationAt(x, y) == null
+               && gameBoard.findDistrict(x, y) == district;
+    }
+
+    private static void snapshot(List<Station> stations, int[] xs, int[] ys, Station.StationType[] types) {
+        for (int i = 0; i < stations.size(); i++) {
+            final Station station = stations.get(i);
+            xs[i] = station.getX();
+            ys[i] = station.getY();
+            types[i] = station.getType();
+        }
+    }
+
+    private void restore(List<Station> stations, int[] xs, int[] ys, Station.StationType[] types) {
+        for (int i = 0; i < stations.size(); i++) {
+            final Station station = stations.get(i);
+            gameBoard.moveStation(station, xs[i], ys[i]);
+            station.setType(types[i]);
+        }
+    }
+
+    /**
+     * A single station change, reused across the iterations.
+     */
+    static class Move {
+        private Station station;
+        // the station that swaps its type with the station, null for moves
+        private Station other;
+        private int x, y, previousX, previousY;
+        private Station.StationType type, previousType;
+
+        private boolean isTypeSwap() {
+            return other != null;
+        }
+
+        void apply(GameBoard gameBoard) {
+            if (isTypeSwap()) {
+                station.setType(type);
+                other.setType(previousType);
+            } else {
+                gameBoard.moveStation(station, x, y);
+            }
+        }
+
+        private void revert(GameBoard gameBoard) {
+            if (isTypeSwap()) {
+                station.setType(previousType);
+                other.setType(type);
+            } else {
+                gameBoard.moveStation(station, previousX, previousY);
+            }
+        }
+    }
+
+    public enum CoolingSchedule {
+        EXPONENTIAL {
+            @Override
+            public double temperature(double start, double end, double progress) {
+                return start * Math.pow(end / start, progress);
+            }
+        },
+        LINEAR {
+            @Override
+            public double temperature(double start, double end, double progress) {
+                return start + (end - start) * progress;
+            }
+        };
+
+        /**
+         * @param progress the share of the iterations that have been run so far, from 0 to 1
+         */
+        public abstract double temperature(double start, double end, double progress);
+    }
+
+    @Data
+    public static class AnnealingOptions {
+        private int maxIterations = 5000;
+        // in score units: a move that worsens the score by the temperature is accepted with a chance of 1/e
+        private double startTemperature = 20;
+        private double endTemperature = 0.2;
+        private CoolingSchedule coolingSchedule = CoolingSchedule.EXPONENTIAL;
+        // relative chances of the moves: relocate within the district, shift to a neighboring cell, swap the type with another station
+        private int relocateWeight = 3;
+        private int shiftWeight = 3;
+        private int retypeWeight = 1;
+    }
+}
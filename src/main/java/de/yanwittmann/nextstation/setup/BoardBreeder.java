@@ -0,0 +1,194 @@
+package de.yanwittmann.nextstation.setup;
+
+import de.yanwittmann.nextstation.model.GameBoard;
+import de.yanwittmann.nextstation.model.board.BoardDistrict;
+import de.yanwittmann.nextstation.model.board.Station;
+import de.yanwittmann.nextstation.util.GeneralUtil;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * Evolutionary optimizer for station layouts. A population of generated boards is bred over several generations: two
+ * parents picked by tournament selection produce a child that takes the stations of every district from one of the two
+ * parents, and the child is mutated by a few random station moves and type changes, see
+ * {@link BoardAnnealer#proposeRandomMove}. The best boards of each generation are carried over unchanged.
+ * <p>
+ * Only the station layout is bred: a child takes everything else, like the cards and score contributors, from its first
+ * parent. Connections, intersections and the river refer to station positions and cannot be carried over, so the
+ * generator must stop before these stages, which then run on the bred board. Generated boards that already have them
+ * are rejected.
+ * Boards are generated and scored on a worker pool, the selection draws from a random stream of the run seed, so the
+ * same seed always breeds the same board.
+ */
+@Slf4j
+public class BoardBreeder {
+    private final LongFunction<BoardTemplates> boardGenerator;
+    private final Function<BoardTemplates, Integer> boardScorer;
+    private final boolean maximize;
+    private final BreedingOptions options;
+    private final long seed;
+    private final Comparator<Individual> bestFirst;
+
+    public BoardBreeder(LongFunction<BoardTemplates> boardGenerator, Function<BoardTemplates, Integer> boardScorer, boolean maximize, BreedingOptions options, long seed) {
+        if (options.populationSize < 2) {
+            throw new IllegalArgumentException("Population size must be at least 2, got " + options.populationSize);
+        }
+        this.boardGenerator = boardGenerator;
+        this.boardScorer = boardScorer;
+        this.maximize = maximize;
+        this.options = options;
+        this.seed = seed;
+        // on equal scores the older board wins, like the first strictly better board of the random restarts
+        final Comparator<Individual> byScore = Comparator.comparingInt(individual -> individual.score);
+        this.bestFirst = (maximize ? byScore.reversed() : byScore).thenComparingLong(individual -> individual.birth);
+    }
+
+    public BoardTemplates run() {
+        // the first seeds of the run seed go to the initial population, the ones after that to the children
+        final SplittableRandom random = new SplittableRandom(seed);
+        long nextSeedIndex = 0;
+
+        final ForkJoinPool pool = new ForkJoinPool(Math.max(1, options.parallelism));
+        try {
+            final List<Callable<Individual>> initialTasks = new ArrayList<>();
+            for (int i = 0; i < options.populationSize; i++) {
+                final long index = nextSeedIndex++;
+                initialTasks.add(() -> {
+                    final BoardTemplates board = boardGenerator.apply(GeneralUtil.derivedSeed(seed, index));
+                    BoardAnnealer.requireStationLayoutOnly(board.getBoard());
+                    return score(board, index);
+                });
+            }
+            List<Individual> population = runAll(pool, initialTasks);
+            population.sort(bestFirst);
+            log.info("[generation {}/{}] best: {}", 0, options.generations, population.get(0).score);
+
+            for (int generation = 1; generation <= options.generations; generation++) {
+                final List<Individual> next = new ArrayList<>(population.subList(0, Math.min(options.eliteCount, population.size())));
+                final List<Callable<Individual>> childTasks = new ArrayList<>();
+                while (next.size() + childTasks.size() < options.populationSize) {
+                    final GameBoard parentA = tournament(population, random).board.getBoard();
+                    final GameBoard parentB = tournament(population, random).board.getBoard();
+                    final long index = nextSeedIndex++;
+                    childTasks.add(() -> score(breed(parentA, parentB, GeneralUtil.derivedSeed(seed, index)), index));
+                }
+                next.addAll(runAll(pool, childTasks));
+                next.sort(bestFirst);
+                population = next;
+                log.info("[generation {}/{}] best: {}", generation, options.generations, population.get(0).score);
+            }
+            return population.get(0).board;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private BoardTemplates breed(GameBoard parentA, GameBoard parentB, long childSeed) {
+        final BoardTemplates child = BoardTemplates.start(crossover(parentA, parentB, new SplittableRandom(childSeed)), childSeed);
+        final GameBoard board = child.getBoard();
+        final SplittableRandom random = child.getRandom();
+        final BoardAnnealer.Move move = new BoardAnnealer.Move();
+        for (int m = 0; m < options.mutationsPerChild && !board.getStations().isEmpty(); m++) {
+            final Station station = board.getStations().get(random.nextInt(board.getStations().size()));
+            if (BoardAnnealer.proposeRandomMove(board, random, options.relocateWeight, options.shiftWeight, options.retypeWeight, station, move)) {
+                move.apply(board);
+            }
+        }
+        return child;
+    }
+
+    /**
+     * Builds a {@link GameBoard#fork() fork} of the first parent, where the stations of every district are copied from
+     * either of the parents. Stations outside of all districts always come from the first parent. If the parents were
+     * generated with different districts, the child is a copy of the first parent.
+     */
+    static GameBoard crossover(GameBoard parentA, GameBoard parentB, SplittableRandom random) {
+        final GameBoard child = parentA.fork();
+        for (Station station : new ArrayList<>(child.getStations())) {
+            child.removeStation(station);
+        }
+
+        final boolean compatible = parentA.getDistricts().equals(parentB.getDistricts());
+        final Map<BoardDistrict, Set<Station>> stationsA = parentA.computeStationsPerDistrict();
+        final Map<BoardDistrict, Set<Station>> stationsB = compatible ? parentB.computeStationsPerDistrict() : null;
+        for (Map.Entry<BoardDistrict, Set<Station>> entry : stationsA.entrySet()) {
+            final Set<Station> source = compatible && random.nextBoolean() ? stationsB.get(entry.getKey()) : entry.getValue();
+            for (Station station : source) {
+                child.addStation(station.copy());
+            }
+        }
+        for (Station station : parentA.getStations()) {
+            if (parentA.findDistrict(station) == null) {
+                child.addStation(station.copy());
+            }
+        }
+        return child;
+    }
+
+    private Individual tournament(List<Individual> population, SplittableRandom random) {
+        Individual best = null;
+        for (int i = 0; i < Math.max(1, options.tournamentSize); i++) {
+            final Individual candidate = population.get(random.nextInt(population.size()));
+            if (best == null || bestFirst.compare(candidate, best) < 0) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private Individual score(BoardTemplates board, long birth) {
+        return new Individual(board, boardScorer.apply(board), birth);
+    }
+
+    private static List<Individual> runAll(ForkJoinPool pool, List<Callable<Individual>> tasks) {
+        final List<Individual> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<Individual> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for board breeder workers", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Board breeder worker failed", e.getCause());
+        }
+        return results;
+    }
+
+    @AllArgsConstructor
+    private static class Individual {
+        private final BoardTemplates board;
+        private final int score;
+        // the seed index the board was created from, unique within a run
+        private final long birth;
+    }
+
+    @Data
+    public static class BreedingOptions {
+        private int populationSize = 32;
+        private int generations = 20;
+        // the best boards of a generation that are carried over into the next one
+        private int eliteCount = 2;
+        private int tournamentSize = 3;
+        private int mutationsPerChild = 3;
+        // relative chances of the mutations, see BoardAnnealer.AnnealingOptions
+        private int relocateWeight = 3;
+        private int shiftWeight = 3;
+        private int retypeWeight = 1;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,38 @@
+package de.yanwittmann.nextstation.setup;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.function.Function;
+
+/**
+ * One of the scores of a multi-objective optimizer run, see {@link BoardOptimizer#runPareto}.
+ */
+@Data
+@AllArgsConstructor
+public class BoardObjective {
+    private final String name;
+    private final Function<BoardTemplates, Integer> scorer;
+    private final boolean maximize;
+    // only used for the weighted pick from the front, in points per score unit
+    private final double weight;
+
+    public static BoardObjective maximize(String name, Function<BoardTemplates, Integer> scorer) {
+        return new BoardObjective(name, scorer, true, 1);
+    }
+
+    public static BoardObjective minimize(String name, Function<BoardTemplates, Integer> scorer) {
+        return new BoardObjective(name, scorer, false, 1);
+    }
+
+    public BoardObjective withWeight(double weight) {
+        return new BoardObjective(name, scorer, maximize, weight);
+    }
+
+    /**
+     * @return a positive value if the first score is better than the second one
+     */
+    public int compare(int score, int otherScore) {
+        return maximize ? Integer.compare(score, otherScore) : Integer.compare(otherScore, score);
+    }
+}
@@ -1,51 +1,661 @@
 package de.yanwittmann.nextstation.setup;
 
+import de.yanwittmann.nextstation.model.board.RiverLayout;
 import de.yanwittmann.nextstation.model.board.Station;
+import de.yanwittmann.nextstation.util.GeneralUtil;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Comparator;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IntSummaryStatistics;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.LongFunction;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 @Slf4j
 public class BoardOptimizer {
 
     public static BoardTemplates runIterations(Supplier<BoardTemplates> boardGenerator, Function<BoardTemplates, Integer> boardScorer, boolean maximize, int maxIterations) {
+        return runIterations(seed -> boardGenerator.get(), boardScorer, maximize, maxIterations, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Iteration <code>i</code> receives the seed {@link GeneralUtil#derivedSeed(long, long)} of the run seed and
+     * <code>i</code>, which the generator should pass on to {@link BoardTemplates#start(long)}. The same run seed then
+     * always yields the same best board.
+     */
+    public static BoardTemplates runIterations(LongFunction<BoardTemplates> boardGenerator, Function<BoardTemplates, Integer> boardScorer, boolean maximize, int maxIterations, long seed) {
         BoardTemplates bestBoard = null;
         int bestScore = maximize ? Integer.MIN_VALUE : Integer.MAX_VALUE;
         int totalTimeGenerating = 0;
         for (int i = 0; i < maxIterations; i++) {
             final long start = System.currentTimeMillis();
-            final BoardTemplates board = boardGenerator.get();
+            final BoardTemplates board = boardGenerator.apply(GeneralUtil.derivedSeed(seed, i));
             totalTimeGenerating += (int) (System.currentTimeMillis() - start);
             final int score = boardScorer.apply(board);
             final boolean isBetter = maximize ? score > bestScore : score < bestScore;
             if (isBetter) {
                 bestScore = score;
                 bestBoard = board;
-                log.info("[{}/{}] [{}ms total / ~{}ms avg] new best: {}",
-                        String.format("%3d", i + 1), maxIterations, totalTimeGenerating, totalTimeGenerating / (i + 1), score);
+                log.info("[{}/{}] [{}ms total / ~{}ms avg] new best: {} (seed {})",
+                        String.format("%3d", i + 1), maxIterations, totalTimeGenerating, totalTimeGenerating / (i + 1), score, board.getSeed());
+            }
+        }
+        return bestBoard;
+    }
+
+    /**
+     * Sequential random restarts on a staged pipeline: once a best board exists, candidates whose bounds show that they
+     * cannot beat it are dropped after the stage the bound is attached to. With valid bounds, the result is the same as
+     * the one of {@link #runIterations(LongFunction, Function, boolean, int, long)} on {@link StagedBoardPipeline#asGenerator()}.
+     */
+    public static BoardTemplates runStaged(StagedBoardPipeline pipeline, Function<BoardTemplates, Integer> boardScorer, boolean maximize, int maxIterations, long seed) {
+        final List<StagedBoardPipeline.StageStats> stageStats = new ArrayList<>();
+        BoardTemplates bestBoard = null;
+        Integer bestScore = null;
+        long scoringNanos = 0;
+        for (int i = 0; i < maxIterations; i++) {
+            final BoardTemplates board = pipeline.generate(GeneralUtil.derivedSeed(seed, i), bestScore, maximize, stageStats);
+            if (board == null) continue;
+            final long scoreStart = System.nanoTime();
+            final int score = boardScorer.apply(board);
+            scoringNanos += System.nanoTime() - scoreStart;
+            if (bestScore == null || (maximize ? score > bestScore : score < bestScore)) {
+                bestScore = score;
+                bestBoard = board;
+                log.info("[{}/{}] new best: {} (seed {})", String.format("%3d", i + 1), maxIterations, score, board.getSeed());
             }
         }
+        for (StagedBoardPipeline.StageStats stats : stageStats) {
+            log.info("[stage {}] {} runs, {} rejected, {}ms", stats.getName(), stats.getRuns(), stats.getRejected(), stats.getNanos() / 1_000_000);
+        }
+        log.info("[scoring] {}ms", scoringNanos / 1_000_000);
         return bestBoard;
     }
 
-    public final static Function<BoardTemplates, Integer> STATION_SPREAD = board -> {
-        // 3 closest stations for each station, sum of distances
-        AtomicInteger score = new AtomicInteger();
-        board.getBoard().getStations().forEach(station -> {
-            List<Station> closestStations = board.getBoard().getStations().stream()
-                    .filter(otherStation -> !otherStation.equals(station))
-                    .sorted(Comparator.comparingInt(otherStation -> (int) Math.pow(otherStation.getX() - station.getX(), 2) + (int) Math.pow(otherStation.getY() - station.getY(), 2)))
-                    .limit(3)
-                    .collect(Collectors.toList());
-            score.addAndGet(closestStations.stream()
-                    .mapToInt(otherStation -> (int) Math.pow(otherStation.getX() - station.getX(), 2) + (int) Math.pow(otherStation.getY() - station.getY(), 2))
-                    .sum());
+    public static BoardTemplates runIterationsParallel(Supplier<BoardTemplates> boardGenerator, Function<BoardTemplates, Integer> boardScorer, boolean maximize, int maxIterations) {
+        return runIterationsParallel(boardGenerator, boardScorer, maximize, maxIterations, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static BoardTemplates runIterationsParallel(Supplier<BoardTemplates> boardGenerator, Function<BoardTemplates, Integer> boardScorer, boolean maximize, int maxIterations, int parallelism) {
+        return runIterationsParallel(seed -> boardGenerator.get(), boardScorer, maximize, maxIterations, ThreadLocalRandom.current().nextLong(), parallelism).getBestBoard();
+    }
+
+    /**
+     * Parallel variant of {@link #runIterations(LongFunction, Function, boolean, int, long)}.
+     * Every worker pulls iteration indices from a shared counter, generates and scores the board on its own thread and
+     * offers improvements to a shared best candidate. On equal scores the lower iteration index wins, which matches the
+     * "first strictly better board" semantics of the sequential path. Since the iteration seeds only depend on the run
+     * seed and the iteration index, the result is the same as the one of the sequential path for the same seed.
+     * The generator and scorer must be safe to call from several threads at once.
+     *
+     * @return the best board along with the score histogram and the statistics of every worker
+     */
+    public static OptimizerResult runIterationsParallel(LongFunction<BoardTemplates> boardGenerator, Function<BoardTemplates, Integer> boardScorer, boolean maximize, int maxIterations, long seed, int parallelism) {
+        final int workerCount = Math.max(1, Math.min(parallelism, maxIterations));
+        final AtomicInteger nextIteration = new AtomicInteger();
+        final AtomicReference<ScoredBoard> globalBest = new AtomicReference<>();
+        final ConcurrentSkipListMap<Integer, Integer> scoreHistogram = new ConcurrentSkipListMap<>();
+        final List<WorkerStats> workerStats = new ArrayList<>();
+
+        final List<Callable<WorkerStats>> workers = new ArrayList<>();
+        for (int w = 0; w < workerCount; w++) {
+            final int workerIndex = w;
+            workers.add(() -> {
+                final WorkerStats stats = new WorkerStats(workerIndex);
+                ScoredBoard localBest = null;
+                int i;
+                while ((i = nextIteration.getAndIncrement()) < maxIterations) {
+                    final long generateStart = System.nanoTime();
+                    final BoardTemplates board = boardGenerator.apply(GeneralUtil.derivedSeed(seed, i));
+                    final long scoreStart = System.nanoTime();
+                    final int score = boardScorer.apply(board);
+                    final long scoreEnd = System.nanoTime();
+
+                    stats.iterations++;
+                    stats.generatingNanos += scoreStart - generateStart;
+                    stats.scoringNanos += scoreEnd - scoreStart;
+                    scoreHistogram.merge(score, 1, Integer::sum);
+
+                    final ScoredBoard candidate = new ScoredBoard(board, score, i);
+                    if (localBest == null || candidate.isBetterThan(localBest, maximize)) {
+                        localBest = candidate;
+                        final ScoredBoard merged = globalBest.accumulateAndGet(candidate, (current, offered) -> offered.isBetterThan(current, maximize) ? offered : current);
+                        if (merged == candidate) {
+                            log.info("[{}/{}] [worker {}] [~{}ms avg] new best: {} (seed {})",
+                                    String.format("%3d", i + 1), maxIterations, workerIndex, stats.averageIterationMillis(), score, board.getSeed());
+                        }
+                    }
+                }
+                return stats;
+            });
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(workerCount);
+        final long start = System.nanoTime();
+        try {
+            for (Future<WorkerStats> future : pool.invokeAll(workers)) {
+                workerStats.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for board optimizer workers", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Board optimizer worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        final long wallNanos = System.nanoTime() - start;
+
+        for (WorkerStats stats : workerStats) {
+            log.info("[worker {}] {} iterations, {}ms generating, {}ms scoring, ~{}ms avg",
+                    stats.workerIndex, stats.iterations, stats.generatingNanos / 1_000_000, stats.scoringNanos / 1_000_000, stats.averageIterationMillis());
+        }
+        log.info("{} iterations on {} workers in {}ms wall clock", maxIterations, workerCount, wallNanos / 1_000_000);
+
+        final ScoredBoard best = globalBest.get();
+        return new OptimizerResult(
+                best == null ? null : best.board, best == null ? 0 : best.score, best == null ? -1 : best.iteration,
+                StopReason.MAX_ITERATIONS, scoreHistogram, 0, workerStats, wallNanos);
+    }
+
+    /**
+     * Random restarts like {@link #runIterationsParallel(LongFunction, Function, boolean, int, long, int)}, but the run
+     * stops on whichever limit of the budget is hit first: the number of iterations, the wall clock time or the
+     * number of iterations since the last improvement. The iterations since the last improvement are counted in
+     * iteration order, so that without a time limit the best board and the stop reason only depend on the seed, no
+     * matter how many workers there are. Workers that are busy when the run stops still finish their iteration, so the
+     * iteration count and the score histogram may include a few boards past the stopping point.
+     * <p>
+     * If the budget has a checkpoint file, the progress is written to it periodically by a background thread and a
+     * run with the same seed continues from the checkpoint instead of starting over. The time limit applies to each
+     * run on its own, the iteration limits count the iterations of all runs. Only these random restarts can be
+     * resumed, {@link #runPareto} and {@link #runAnnealing} always start over.
+     */
+    public static OptimizerResult runBudgeted(LongFunction<BoardTemplates> boardGenerator, Function<BoardTemplates, Integer> boardScorer, boolean maximize, RunBudget budget, long seed) {
+        final int workerCount = Math.max(1, Math.min(budget.parallelism, budget.maxIterations));
+        final long start = System.nanoTime();
+        final long deadline = budget.maxDuration == null ? Long.MAX_VALUE : start + budget.maxDuration.toNanos();
+        final AtomicReference<ScoredBoard> globalBest = new AtomicReference<>();
+        final AtomicReference<StopReason> stopReason = new AtomicReference<>();
+
+        final OptimizerCheckpoint resumed = readCheckpoint(budget.checkpointFile, seed);
+        final Set<Integer> resumedCompleted = new HashSet<>(resumed.getCompletedAboveWatermark());
+        final AtomicInteger nextIteration = new AtomicInteger(resumed.getWatermark());
+        final ImprovementTracker improvement = new ImprovementTracker(budget.maxIterationsWithoutImprovement, maximize,
+                resumed.getWatermark(), resumed.getBestIteration(), resumed.getBestScore());
+        if (resumed.getBestIteration() >= 0) {
+            // the best board is not stored, but it can be generated again from its iteration
+            final BoardTemplates board = boardGenerator.apply(GeneralUtil.derivedSeed(seed, resumed.getBestIteration()));
+            globalBest.set(new ScoredBoard(board, boardScorer.apply(board), resumed.getBestIteration()));
+            log.info("resuming from {} completed iterations, best: {} in iteration {}", resumed.completedIterations(), resumed.getBestScore(), resumed.getBestIteration());
+        }
+
+        final List<Callable<WorkerStats>> workers = new ArrayList<>();
+        final List<WorkerProgress> workerProgress = new ArrayList<>();
+        for (int w = 0; w < workerCount; w++) {
+            final int workerIndex = w;
+            final WorkerProgress progress = new WorkerProgress(resumed.getWatermark(), budget.checkpointFile != null);
+            workerProgress.add(progress);
+            workers.add(() -> {
+                final WorkerStats stats = new WorkerStats(workerIndex);
+                while (stopReason.get() == null) {
+                    if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0) {
+                        stopReason.compareAndSet(null, StopReason.TIME_BUDGET);
+                        break;
+                    }
+                    // never counts past the iteration limit, which keeps the counter from overflowing on long runs
+                    final int i = nextIteration.getAndUpdate(next -> next < budget.maxIterations ? next + 1 : next);
+                    progress.current = i;
+                    if (i >= budget.maxIterations) {
+                        stopReason.compareAndSet(null, StopReason.MAX_ITERATIONS);
+                        break;
+                    }
+                    if (i >= improvement.getStopIteration()) {
+                        stopReason.compareAndSet(null, StopReason.NO_IMPROVEMENT);
+                        break;
+                    }
+                    if (resumedCompleted.contains(i)) {
+                        improvement.complete(i, null);
+                        continue;
+                    }
+
+                    final long generateStart = System.nanoTime();
+                    final BoardTemplates board = boardGenerator.apply(GeneralUtil.derivedSeed(seed, i));
+                    final long scoreStart = System.nanoTime();
+                    final int score = boardScorer.apply(board);
+                    final long scoreEnd = System.nanoTime();
+
+                    stats.iterations++;
+                    stats.generatingNanos += scoreStart - generateStart;
+                    stats.scoringNanos += scoreEnd - scoreStart;
+
+                    final ScoredBoard candidate = new ScoredBoard(board, score, i);
+                    globalBest.accumulateAndGet(candidate, (current, offered) -> offered.isBetterThan(current, maximize) ? offered : current);
+                    progress.record(i, score);
+                    improvement.complete(i, score);
+                }
+                return stats;
+            });
+        }
+
+        final Supplier<OptimizerCheckpoint> checkpoint = () -> {
+            // every iteration below the lowest one a worker is currently at has been recorded
+            int watermark = nextIteration.get();
+            for (WorkerProgress progress : workerProgress) {
+                watermark = Math.min(watermark, progress.current);
+            }
+            final int finalWatermark = watermark;
+            final OptimizerCheckpoint snapshot = new OptimizerCheckpoint();
+            snapshot.setSeed(seed);
+            final SortedSet<Integer> completed = new TreeSet<>();
+            resumedCompleted.stream().filter(i -> i >= finalWatermark).forEach(completed::add);
+            snapshot.getScoreHistogram().putAll(resumed.getScoreHistogram());
+            for (WorkerProgress progress : workerProgress) {
+                progress.copyInto(watermark, completed, snapshot.getScoreHistogram());
+            }
+            while (completed.remove(watermark)) {
+                watermark++;
+            }
+            snapshot.setWatermark(watermark);
+            snapshot.getCompletedAboveWatermark().addAll(completed);
+            final ScoredBoard best = globalBest.get();
+            if (improvement.getStopIteration() != Integer.MAX_VALUE) {
+                snapshot.setBestIteration(improvement.getBestIteration());
+                snapshot.setBestScore(improvement.getBestScore());
+            } else {
+                snapshot.setBestIteration(best == null ? -1 : best.iteration);
+                snapshot.setBestScore(best == null ? 0 : best.score);
+            }
+            snapshot.setElapsedNanos(resumed.getElapsedNanos() + System.nanoTime() - start);
+            return snapshot;
+        };
+        final ScheduledExecutorService checkpointWriter = budget.checkpointFile == null ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "optimizer-checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
         });
-        return score.get();
+        if (checkpointWriter != null) {
+            final long intervalMillis = Math.max(1, budget.checkpointInterval.toMillis());
+            checkpointWriter.scheduleWithFixedDelay(() -> writeCheckpoint(checkpoint.get(), budget.checkpointFile), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        final List<WorkerStats> workerStats = new ArrayList<>();
+        try {
+            if (workerCount == 1) {
+                try {
+                    workerStats.add(workers.get(0).call());
+                } catch (Exception e) {
+                    throw new IllegalStateException("Board optimizer worker failed", e);
+                }
+            } else {
+                final ForkJoinPool pool = new ForkJoinPool(workerCount);
+                try {
+                    for (Future<WorkerStats> future : pool.invokeAll(workers)) {
+                        workerStats.add(future.get());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for board optimizer workers", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Board optimizer worker failed", e.getCause());
+                } finally {
+                    pool.shutdownNow();
+                }
+            }
+        } finally {
+            if (checkpointWriter != null) {
+                // lets a running write finish, the periodic writes stop
+                checkpointWriter.shutdown();
+                try {
+                    checkpointWriter.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                writeCheckpoint(checkpoint.get(), budget.checkpointFile);
+            }
+        }
+        final long wallNanos = System.nanoTime() - start;
+
+        final SortedMap<Integer, Integer> scoreHistogram = new TreeMap<>(resumed.getScoreHistogram());
+        workerProgress.forEach(progress -> progress.copyInto(Integer.MAX_VALUE, new TreeSet<>(), scoreHistogram));
+        ScoredBoard best = globalBest.get();
+        if (improvement.getStopIteration() != Integer.MAX_VALUE && best != null && best.iteration != improvement.getBestIteration()) {
+            // found by a worker that was still busy past the stopping point, a single worker would not have generated it
+            final BoardTemplates board = boardGenerator.apply(GeneralUtil.derivedSeed(seed, improvement.getBestIteration()));
+            best = new ScoredBoard(board, improvement.getBestScore(), improvement.getBestIteration());
+        }
+        final OptimizerResult result = new OptimizerResult(
+                best == null ? null : best.board, best == null ? 0 : best.score, best == null ? -1 : best.iteration,
+                stopReason.get(), scoreHistogram, resumed.completedIterations(), workerStats, wallNanos);
+        log.info("{} iterations on {} workers in {}ms ({} it/s), stopped by {}, best: {} in iteration {}",
+                result.getIterations(), workerCount, wallNanos / 1_000_000, String.format("%.1f", result.iterationsPerSecond()),
+                result.getStopReason(), result.getBestScore(), result.getBestIteration());
+        return result;
+    }
+
+    /**
+     * @return the checkpoint in the file, or an empty checkpoint if there is no file or it does not exist yet
+     */
+    private static OptimizerCheckpoint readCheckpoint(Path checkpointFile, long seed) {
+        OptimizerCheckpoint checkpoint = null;
+        if (checkpointFile != null) {
+            try {
+                checkpoint = OptimizerCheckpoint.read(checkpointFile);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read optimizer checkpoint " + checkpointFile, e);
+            }
+        }
+        if (checkpoint == null) {
+            checkpoint = new OptimizerCheckpoint();
+            checkpoint.setSeed(seed);
+        } else if (checkpoint.getSeed() != seed) {
+            throw new IllegalStateException("Optimizer checkpoint " + checkpointFile + " belongs to the run seed " + checkpoint.getSeed() + ", not " + seed);
+        }
+        return checkpoint;
+    }
+
+    private static void writeCheckpoint(OptimizerCheckpoint checkpoint, Path checkpointFile) {
+        try {
+            checkpoint.write(checkpointFile);
+            log.debug("wrote checkpoint with {} completed iterations to {}", checkpoint.completedIterations(), checkpointFile);
+        } catch (IOException e) {
+            log.warn("could not write optimizer checkpoint {}: {}", checkpointFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Multi-objective random restarts: every board is scored by all objectives and offered to a bounded
+     * {@link ParetoArchive}, which keeps the boards that no other board beats in all objectives at once.
+     * The workers already keep every thread of the pool busy, so each worker scores the objectives of its board one
+     * after the other. Use {@link ParetoArchive#getBestWeighted()} to pick a single board from the front.
+     * The objective scorers must be safe to call from several threads at once.
+     */
+    public static ParetoArchive runPareto(LongFunction<BoardTemplates> boardGenerator, List<BoardObjective> objectives, int archiveCapacity, int maxIterations, long seed, int parallelism) {
+        final ParetoArchive archive = new ParetoArchive(objectives, archiveCapacity);
+        final int workerCount = Math.max(1, Math.min(parallelism, maxIterations));
+        final AtomicInteger nextIteration = new AtomicInteger();
+
+        final List<Callable<Void>> workers = new ArrayList<>();
+        for (int w = 0; w < workerCount; w++) {
+            workers.add(() -> {
+                final int[] scores = new int[objectives.size()];
+                int i;
+                while ((i = nextIteration.getAndIncrement()) < maxIterations) {
+                    final BoardTemplates board = boardGenerator.apply(GeneralUtil.derivedSeed(seed, i));
+                    for (int o = 0; o < scores.length; o++) {
+                        scores[o] = objectives.get(o).getScorer().apply(board);
+                    }
+                    if (archive.offer(board, scores, i)) {
+                        log.info("[{}/{}] front: {} boards, added {}", String.format("%3d", i + 1), maxIterations, archive.size(), Arrays.toString(scores));
+                    }
+                }
+                return null;
+            });
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(workerCount);
+        try {
+            for (Future<Void> future : pool.invokeAll(workers)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for board optimizer workers", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Board optimizer worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return archive;
+    }
+
+    /**
+     * Local search instead of random restarts: the board is mutated in place by a {@link BoardAnnealer} and left in the
+     * best state it reached. The board must not have connections, intersections or a river yet.
+     */
+    public static BoardTemplates runAnnealing(BoardTemplates board, Function<BoardTemplates, Integer> boardScorer, boolean maximize, BoardAnnealer.AnnealingOptions options) {
+        return new BoardAnnealer(board, boardScorer, maximize, options).run();
+    }
+
+    /**
+     * Generates a single board from the run seed and anneals it, see {@link #runAnnealing(BoardTemplates, Function, boolean, BoardAnnealer.AnnealingOptions)}.
+     */
+    public static BoardTemplates runAnnealing(LongFunction<BoardTemplates> boardGenerator, Function<BoardTemplates, Integer> boardScorer, boolean maximize, BoardAnnealer.AnnealingOptions options, long seed) {
+        return runAnnealing(boardGenerator.apply(GeneralUtil.derivedSeed(seed, 0)), boardScorer, maximize, options);
+    }
+
+    /**
+     * Evolutionary optimization of the station layouts of the generated boards, see {@link BoardBreeder}.
+     */
+    public static BoardTemplates runBreeding(LongFunction<BoardTemplates> boardGenerator, Function<BoardTemplates, Integer> boardScorer, boolean maximize, BoardBreeder.BreedingOptions options, long seed) {
+        return new BoardBreeder(boardGenerator, boardScorer, maximize, options, seed).run();
+    }
+
+    @AllArgsConstructor
+    private static class ScoredBoard {
+        private final BoardTemplates board;
+        private final int score;
+        private final int iteration;
+
+        private boolean isBetterThan(ScoredBoard other, boolean maximize) {
+            if (other == null) return true;
+            if (score == other.score) return iteration < other.iteration;
+            return maximize ? score > other.score : score < other.score;
+        }
+    }
+
+    public enum StopReason {
+        MAX_ITERATIONS, TIME_BUDGET, NO_IMPROVEMENT
+    }
+
+    @Data
+    public static class RunBudget {
+        private int maxIterations = Integer.MAX_VALUE;
+        // null for no time limit
+        private Duration maxDuration;
+        private int maxIterationsWithoutImprovement = Integer.MAX_VALUE;
+        private int parallelism = 1;
+        // null to neither write nor resume from checkpoints
+        private Path checkpointFile;
+        private Duration checkpointInterval = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class OptimizerResult {
+        private final BoardTemplates bestBoard;
+        private final int bestScore;
+        private final int bestIteration;
+        private final StopReason stopReason;
+        // number of boards per score
+        private final SortedMap<Integer, Integer> scoreHistogram;
+        // iterations done by previous runs of the checkpoint the run resumed from
+        private final int resumedIterations;
+        private final List<WorkerStats> workerStats;
+        private final long wallNanos;
+
+        public int getIterations() {
+            return resumedIterations + workerStats.stream().mapToInt(WorkerStats::getIterations).sum();
+        }
+
+        public long getGeneratingNanos() {
+            return workerStats.stream().mapToLong(WorkerStats::getGeneratingNanos).sum();
+        }
+
+        public long getScoringNanos() {
+            return workerStats.stream().mapToLong(WorkerStats::getScoringNanos).sum();
+        }
+
+        public double iterationsPerSecond() {
+            return wallNanos == 0 ? 0 : (getIterations() - resumedIterations) * 1_000_000_000.0 / wallNanos;
+        }
+    }
+
+    /**
+     * Counts the iterations without improvement in iteration order: the run stops at the first iteration that is more
+     * than the limit past the best one of all iterations before it, which is the iteration a single worker stops at.
+     */
+    private static class ImprovementTracker {
+        private final int maxIterationsWithoutImprovement;
+        private final boolean maximize;
+        // all iterations below the watermark are done and counted into the best one
+        private int watermark;
+        private int bestIteration;
+        private int bestScore;
+        // the scores of the iterations done above the watermark, null for the ones done by a previous run
+        private final Map<Integer, Integer> completedAboveWatermark = new HashMap<>();
+        private volatile int stopIteration = Integer.MAX_VALUE;
+
+        private ImprovementTracker(int maxIterationsWithoutImprovement, boolean maximize, int watermark, int bestIteration, int bestScore) {
+            this.maxIterationsWithoutImprovement = maxIterationsWithoutImprovement;
+            this.maximize = maximize;
+            this.watermark = watermark;
+            this.bestIteration = bestIteration;
+            this.bestScore = bestScore;
+            advance();
+        }
+
+        private synchronized void complete(int iteration, Integer score) {
+            completedAboveWatermark.put(iteration, score);
+            advance();
+        }
+
+        private synchronized void advance() {
+            while (stopIteration == Integer.MAX_VALUE) {
+                if (bestIteration >= 0 && (long) watermark - bestIteration > maxIterationsWithoutImprovement) {
+                    stopIteration = watermark;
+                    return;
+                }
+                if (!completedAboveWatermark.containsKey(watermark)) return;
+                final Integer score = completedAboveWatermark.remove(watermark);
+                if (score != null && (bestIteration < 0 || (maximize ? score > bestScore : score < bestScore))) {
+                    bestIteration = watermark;
+                    bestScore = score;
+                }
+                watermark++;
+            }
+        }
+
+        // the first iteration that is not run, Integer.MAX_VALUE as long as it is unknown
+        private int getStopIteration() {
+            return stopIteration;
+        }
+
+        private synchronized int getBestIteration() {
+            return bestIteration;
+        }
+
+        private synchronized int getBestScore() {
+            return bestScore;
+        }
+    }
+
+    /**
+     * The iterations a worker has done, guarded by the instance so that the checkpoint writer can take consistent copies.
+     */
+    private static class WorkerProgress {
+        // the last iteration the worker took, all later iterations of the worker are above it
+        private volatile int current;
+        private final boolean trackCompleted;
+        private final List<Integer> completed = new ArrayList<>();
+        private final Map<Integer, Integer> histogram = new TreeMap<>();
+
+        private WorkerProgress(int current, boolean trackCompleted) {
+            this.current = current;
+            this.trackCompleted = trackCompleted;
+        }
+
+        private synchronized void record(int iteration, int score) {
+            histogram.merge(score, 1, Integer::sum);
+            if (trackCompleted) {
+                completed.add(iteration);
+            }
+        }
+
+        private synchronized void copyInto(int watermark, Collection<Integer> completedAboveWatermark, Map<Integer, Integer> scoreHistogram) {
+            // the iterations below the watermark are covered by the watermark from now on
+            completed.removeIf(iteration -> iteration < watermark);
+            completedAboveWatermark.addAll(completed);
+            histogram.forEach((score, count) -> scoreHistogram.merge(score, count, Integer::sum));
+        }
+    }
+
+    @Data
+    public static class WorkerStats {
+        private final int workerIndex;
+        private int iterations;
+        private long generatingNanos;
+        private long scoringNanos;
+
+        public long averageIterationMillis() {
+            return iterations == 0 ? 0 : (generatingNanos + scoringNanos) / iterations / 1_000_000;
+        }
+    }
+
+    /**
+     * Sum of the squared distances of every station to its 3 closest stations.
+     */
+    public final static Function<BoardTemplates, Integer> STATION_SPREAD = new StationSpreadScorer(3);
+
+    /**
+     * Difference between the station counts of the district with the most and the one with the fewest stations.
+     */
+    public final static Function<BoardTemplates, Integer> DISTRICT_BALANCE = board -> {
+        final IntSummaryStatistics counts = board.getBoard().computeStationsPerDistrict().values().stream()
+                .mapToInt(Set::size)
+                .summaryStatistics();
+        return counts.getCount() == 0 ? 0 : counts.getMax() - counts.getMin();
     };
+
+    /**
+     * Difference between the station counts within two cells around the best and the worst placed starting station.
+     */
+    public final static Function<BoardTemplates, Integer> STARTING_POSITION_IMBALANCE = board -> {
+        final List<Station> stations = board.getBoard().getStations();
+        final IntSummaryStatistics counts = stations.stream()
+                .filter(start -> start.getStartingPosition() != -1)
+                .mapToInt(start -> (int) stations.stream()
+                        .filter(station -> station != start && Math.abs(station.getX() - start.getX()) <= 2 && Math.abs(station.getY() - start.getY()) <= 2)
+                        .count())
+                .summaryStatistics();
+        return counts.getCount() == 0 ? 0 : counts.getMax() - counts.getMin();
+    };
+
+    /**
+     * Distance of the river length from the target length, rounded to whole cells. A board without a river deviates by
+     * the full target length.
+     */
+    public static Function<BoardTemplates, Integer> riverLengthDeviation(int targetLength) {
+        return board -> {
+            final RiverLayout riverLayout = board.getBoard().getRiverLayout();
+            final int length = riverLayout == null ? 0 : Math.round(riverLayout.pathLength());
+            return Math.abs(length - targetLength);
+        };
+    }
 }
@@ -0,0 +1,122 @@
+package de.yanwittmann.nextstation.setup;
+
+import de.yanwittmann.nextstation.model.GameBoard;
+import de.yanwittmann.nextstation.util.GeneralUtil;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy streams of generated boards. Element <code>i</code> is generated with the seed
+ * {@link GeneralUtil#derivedSeed(long, long) derivedSeed(seed, i)}, the same seed
+ * {@link BoardOptimizer#runIterations(LongFunction, java.util.function.Function, boolean, int, long)} uses for iteration <code>i</code>,
+ * so a board only depends on the stream seed and its position, no matter how a parallel stream splits the work.
+ * <pre>
+ * BoardStream.generate(generator, seed).parallel()
+ *         .filter(board -&gt; board.getStations().size() &gt; 40)
+ *         .limit(10)
+ * </pre>
+ * Boards are only generated when an element is pulled, the infinite streams are meant to be used with a short-circuiting
+ * operation like <code>limit</code> or <code>findFirst</code>.
+ */
+public class BoardStream {
+
+    public static Stream<GameBoard> generate(LongFunction<BoardTemplates> boardGenerator, long seed) {
+        return templates(boardGenerator, seed).map(BoardTemplates::getBoard);
+    }
+
+    public static Stream<GameBoard> generate(LongFunction<BoardTemplates> boardGenerator, long seed, long count) {
+        return templates(boardGenerator, seed, count).map(BoardTemplates::getBoard);
+    }
+
+    /**
+     * Like {@link #generate(LongFunction, long)}, but keeps the templates, as the scorers work on these.
+     */
+    public static Stream<BoardTemplates> templates(LongFunction<BoardTemplates> boardGenerator, long seed) {
+        return templates(boardGenerator, seed, Long.MAX_VALUE);
+    }
+
+    public static Stream<BoardTemplates> templates(LongFunction<BoardTemplates> boardGenerator, long seed, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative: " + count);
+        }
+        return StreamSupport.stream(new BoardSpliterator(boardGenerator, seed, 0, count), false);
+    }
+
+    /**
+     * Covers the element indices <code>[index, fence)</code> and splits them in halves. Since every element is generated
+     * from its index alone, splits are exact and cost nothing, which keeps the stream sized and lets <code>limit</code>
+     * on a parallel stream cut the index range instead of buffering elements.
+     * <p>
+     * A fence of {@link Long#MAX_VALUE} stands for an infinite stream. It is not sized and splits off growing batches
+     * from its front instead of halves, otherwise a parallel <code>filter().limit()</code> would start generating
+     * around index 2<sup>62</sup>.
+     */
+    static class BoardSpliterator implements Spliterator<BoardTemplates> {
+        private final static int BATCH_UNIT = 16;
+        private final static int MAX_BATCH = 1 << 12;
+
+        private final LongFunction<BoardTemplates> boardGenerator;
+        private final long seed;
+        private long index;
+        private final long fence;
+        private int batch;
+
+        BoardSpliterator(LongFunction<BoardTemplates> boardGenerator, long seed, long index, long fence) {
+            this.boardGenerator = boardGenerator;
+            this.seed = seed;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super BoardTemplates> action) {
+            if (index >= fence) return false;
+            action.accept(boardGenerator.apply(GeneralUtil.derivedSeed(seed, index++)));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super BoardTemplates> action) {
+            final long end = fence;
+            long i = index;
+            // consumed up front, so that a failing generator does not leave the elements to be generated again
+            index = end;
+            for (; i < end; i++) {
+                action.accept(boardGenerator.apply(GeneralUtil.derivedSeed(seed, i)));
+            }
+        }
+
+        @Override
+        public Spliterator<BoardTemplates> trySplit() {
+            if (isUnbounded()) {
+                batch = Math.min(batch + BATCH_UNIT, MAX_BATCH);
+                final BoardSpliterator prefix = new BoardSpliterator(boardGenerator, seed, index, index + batch);
+                index += batch;
+                return prefix;
+            }
+            final long mid = index + (fence - index) / 2;
+            if (mid <= index) return null;
+            final BoardSpliterator prefix = new BoardSpliterator(boardGenerator, seed, index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return isUnbounded() ? Long.MAX_VALUE : fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return isUnbounded() ? ORDERED | NONNULL | IMMUTABLE : ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+
+        private boolean isUnbounded() {
+            return fence == Long.MAX_VALUE;
+        }
+    }
+}
@@ -14,32 +14,67 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static de.yanwittmann.nextstation.util.GeneralUtil.shuffle;
 import static de.yanwittmann.nextstation.util.GeneralUtil.with;
 
 @Slf4j
 public class BoardTemplates {
     private final GameBoard gameBoard;
+    // every random decision of the pipeline is drawn from this stream, the same seed replays the same board
+    private final long seed;
+    private final SplittableRandom random;
 
-    protected BoardTemplates(GameBoard gameBoard) {
+    protected BoardTemplates(GameBoard gameBoard, long seed) {
         this.gameBoard = gameBoard;
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
     }
 
     public static BoardTemplates start() {
-        return new BoardTemplates(new GameBoard());
+        return start(ThreadLocalRandom.current().nextLong());
+    }
+
+    public static BoardTemplates start(long seed) {
+        return new BoardTemplates(new GameBoard(), seed);
     }
 
     public static BoardTemplates start(GameBoard gameBoard) {
-        return new BoardTemplates(gameBoard);
+        return start(gameBoard, ThreadLocalRandom.current().nextLong());
+    }
+
+    public static BoardTemplates start(GameBoard gameBoard, long seed) {
+        return new BoardTemplates(gameBoard, seed);
+    }
+
+    /**
+     * Continues the board of these templates on a {@link GameBoard#fork() fork} with a new random stream, so that the
+     * deterministic start of a pipeline only has to be built once:
+     * <pre>
+     * final BoardTemplates prefix = BoardTemplates.start(0).districtsLondon().stationsFullyFillEvenlyDistributed();
+     * seed -&gt; prefix.fork(seed).stationsRedistributeTypes().stationsRemovePercent(...)
+     * </pre>
+     */
+    public BoardTemplates fork(long seed) {
+        return new BoardTemplates(gameBoard.fork(), seed);
     }
 
     public GameBoard getBoard() {
         return gameBoard;
     }
 
+    public long getSeed() {
+        return seed;
+    }
+
+    public SplittableRandom getRandom() {
+        return random;
+    }
+
     // district layout
 
     public BoardTemplates districtsLondon() {
@@ -47,21 +82,21 @@ public class BoardTemplates {
         gameBoard.setHeight(10);
 
         // top row
-        gameBoard.getDistricts().add(new BoardDistrict(0, 0, 1, 1));
-        gameBoard.getDistricts().add(new BoardDistrict(0, 0, 3, 3));
-        gameBoard.getDistricts().add(new BoardDistrict(3, 0, 4, 3));
-        gameBoard.getDistricts().add(new BoardDistrict(7, 0, 3, 3));
-        gameBoard.getDistricts().add(new BoardDistrict(9, 0, 1, 1));
+        gameBoard.addDistrict(new BoardDistrict(0, 0, 1, 1));
+        gameBoard.addDistrict(new BoardDistrict(0, 0, 3, 3));
+        gameBoard.addDistrict(new BoardDistrict(3, 0, 4, 3));
+        gameBoard.addDistrict(new BoardDistrict(7, 0, 3, 3));
+        gameBoard.addDistrict(new BoardDistrict(9, 0, 1, 1));
         // middle row
-        gameBoard.getDistricts().add(new BoardDistrict(0, 3, 3, 4));
-        gameBoard.getDistricts().add(new BoardDistrict(3, 3, 4, 4));
-        gameBoard.getDistricts().add(new BoardDistrict(7, 3, 3, 4));
+        gameBoard.addDistrict(new BoardDistrict(0, 3, 3, 4));
+        gameBoard.addDistrict(new BoardDistrict(3, 3, 4, 4));
+        gameBoard.addDistrict(new BoardDistrict(7, 3, 3, 4));
         // bottom row
-        gameBoard.getDistricts().add(new BoardDistrict(0, 9, 1, 1));
-        gameBoard.getDistricts().add(new BoardDistrict(0, 7, 3, 3));
-        gameBoard.getDistricts().add(new BoardDistrict(3, 7, 4, 3));
-        gameBoard.getDistricts().add(new BoardDistrict(7, 7, 3, 3));
-        gameBoard.getDistricts().add(new BoardDistrict(9, 9, 1, 1));
+        gameBoard.addDistrict(new BoardDistrict(0, 9, 1, 1));
+        gameBoard.addDistrict(new BoardDistrict(0, 7, 3, 3));
+        gameBoard.addDistrict(new BoardDistrict(3, 7, 4, 3));
+        gameBoard.addDistrict(new BoardDistrict(7, 7, 3, 3));
+        gameBoard.addDistrict(new BoardDistrict(9, 9, 1, 1));
         return this;
     }
 
@@ -70,28 +105,28 @@ public class BoardTemplates {
         gameBoard.setHeight(10);
 
         // top row
-        gameBoard.getDistricts().add(new BoardDistrict(0, 0, 1, 1));
-        gameBoard.getDistricts().add(new BoardDistrict(0, 0, 5, 2));
-        gameBoard.getDistricts().add(new BoardDistrict(5, 0, 5, 2));
-        gameBoard.getDistricts().add(new BoardDistrict(9, 0, 1, 1));
+        gameBoard.addDistrict(new BoardDistrict(0, 0, 1, 1));
+        gameBoard.addDistrict(new BoardDistrict(0, 0, 5, 2));
+        gameBoard.addDistrict(new BoardDistrict(5, 0, 5, 2));
+        gameBoard.addDistrict(new BoardDistrict(9, 0, 1, 1));
 
         // middle row
-        gameBoard.getDistricts().add(new BoardDistrict(0, 2, 5, 3));
-        gameBoard.getDistricts().add(new BoardDistrict(5, 2, 5, 3));
-        gameBoard.getDistricts().add(new BoardDistrict(0, 5, 5, 3));
-        gameBoard.getDistricts().add(new BoardDistrict(5, 5, 5, 3));
+        gameBoard.addDistrict(new BoardDistrict(0, 2, 5, 3));
+        gameBoard.addDistrict(new BoardDistrict(5, 2, 5, 3));
+        gameBoard.addDistrict(new BoardDistrict(0, 5, 5, 3));
+        gameBoard.addDistrict(new BoardDistrict(5, 5, 5, 3));
 
         // bottom row
-        gameBoard.getDistricts().add(new BoardDistrict(0, 9, 1, 1));
-        gameBoard.getDistricts().add(new BoardDistrict(0, 8, 5, 2));
-        gameBoard.getDistricts().add(new BoardDistrict(5, 8, 5, 2));
-        gameBoard.getDistricts().add(new BoardDistrict(9, 9, 1, 1));
+        gameBoard.addDistrict(new BoardDistrict(0, 9, 1, 1));
+        gameBoard.addDistrict(new BoardDistrict(0, 8, 5, 2));
+        gameBoard.addDistrict(new BoardDistrict(5, 8, 5, 2));
+        gameBoard.addDistrict(new BoardDistrict(9, 9, 1, 1));
 
         return this;
     }
 
     public BoardTemplates districtsParisAddCenter() {
-        gameBoard.getDistricts().add(new BoardDistrict(4, 4, 2, 2));
+        gameBoard.addDistrict(new BoardDistrict(4, 4, 2, 2));
         return this;
     }
 
@@ -101,7 +136,7 @@ public class BoardTemplates {
     public BoardTemplates stationsFullyFillRandom() {
         for (int x = 0; x < gameBoard.getWidth(); x++) {
             for (int y = 0; y < gameBoard.getHeight(); y++) {
-                gameBoard.getStations().add(Station.randomType(x, y));
+                gameBoard.addStation(Station.randomType(x, y, random));
             }
         }
         return this;
@@ -110,11 +145,11 @@ public class BoardTemplates {
     public BoardTemplates stationsFullyFillEvenlyDistributed() {
         final int totalStations = gameBoard.getWidth() * gameBoard.getHeight();
         final List<Station.StationType> distributeTypes = getEvenlyDistributedStationTypeCounts(totalStations);
-        Collections.shuffle(distributeTypes);
+        shuffle(distributeTypes, random);
         for (int x = 0; x < gameBoard.getWidth(); x++) {
             for (int y = 0; y < gameBoard.getHeight(); y++) {
                 final Station.StationType type = distributeTypes.remove(0);
-                gameBoard.getStations().add(Station.ofType(x, y, type));
+                gameBoard.addStation(Station.ofType(x, y, type));
             }
         }
         return this;
@@ -124,7 +159,7 @@ public class BoardTemplates {
         final int totalStations = gameBoard.getStations().size();
         final List<Station.StationType> distributeTypes = getEvenlyDistributedStationTypeCounts(totalStations);
         final List<Station> remainingStations = new ArrayList<>(gameBoard.getStations());
-        Collections.shuffle(remainingStations);
+        shuffle(remainingStations, random);
         int index = 0;
         while (!remainingStations.isEmpty() && !distributeTypes.isEmpty()) {
             final Station station = remainingStations.remove(index % remainingStations.size());
@@ -154,7 +189,7 @@ public class BoardTemplates {
         final double radius = Math.min(gameBoard.getWidth(), gameBoard.getHeight()) * 0.4;
 
         for (int i = 0; i < 4; i++) {
-            final double angle = Math.toRadians((i * 90) + (Math.random() * 45));
+            final double angle = Math.toRadians((i * 90) + (random.nextDouble() * 45));
             final int targetX = (int) (centerX + radius * Math.cos(angle));
             final int targetY = (int) (centerY + radius * Math.sin(angle));
             final Station closestStation = gameBoard.getClosestStation(targetX, targetY);
@@ -170,7 +205,7 @@ public class BoardTemplates {
     public BoardTemplates monumentPickRandomStationPerDistrict(int minStationCount, float maxMonumentPercent) {
         int maxMonumentCount = (int) (gameBoard.getDistricts().size() * maxMonumentPercent);
         final List<Map.Entry<BoardDistrict, Set<Station>>> entries = new ArrayList<>(gameBoard.computeStationsPerDistrict().entrySet());
-        Collections.shuffle(entries);
+        shuffle(entries, random);
         int processedDistricts = 0;
         for (int i = 0; i < entries.size() && processedDistricts < maxMonumentCount; i++) {
             final Map.Entry<BoardDistrict, Set<Station>> district = entries.get(i);
@@ -180,7 +215,7 @@ public class BoardTemplates {
             final List<Station> candidates = district.getValue().stream()
                     .filter(station -> station.getStartingPosition() == -1)
                     .collect(Collectors.toList());
-            Collections.shuffle(candidates);
+            shuffle(candidates, random);
             /*candidates.stream()
                     .skip((int) (Math.random() * district.getValue().size()))
                     .findFirst()
@@ -231,7 +266,7 @@ public class BoardTemplates {
         if (jokerCount.get() == 0) {
             log.warn("No joker stations were picked, picking random");
             List<Station> stations = new ArrayList<>(gameBoard.getStations());
-            Collections.shuffle(stations);
+            shuffle(stations, random);
             stations.stream()
                     .filter(Station::isMonument)
                     .findFirst()
@@ -289,7 +324,6 @@ public class BoardTemplates {
 
         int totalStations = gameBoard.getStations().size();
         int stationsToRemove = Math.round(totalStations * removePercent);
-        Set<Station> removableStations = new HashSet<>(gameBoard.getStations());
 
         // populate the minStationsPerDistrict using the minStationsPerDistrictInput and the fallback values for the missing districts
         final Map<BoardDistrict, Integer> minStationsPerDistrict = new HashMap<>();
@@ -305,68 +339,132 @@ public class BoardTemplates {
             minStationsPerDistrict.putIfAbsent(district, minStationsPerDistrictFallback);
         }
 
-        // Initial filtering based on minStationsPerDistrict
-        removableStations.removeIf(station -> {
-            BoardDistrict district = gameBoard.findDistrict(station);
-            return district != null && districtStations.get(district).size() <= minStationsPerDistrict.get(district);
+        // the neighbor graph, the eligibility of each station and the district counts are updated locally after each
+        // removal instead of being recomputed for the whole board. The eligible stations are kept in one sorted set per
+        // district, the last group holds the stations outside of all districts.
+        final StationNeighborGraph graph = new StationNeighborGraph(gameBoard);
+        final int stationCount = graph.size();
+        final List<BoardDistrict> groupDistricts = new ArrayList<>(districtStations.keySet());
+        groupDistricts.add(null);
+        final Map<BoardDistrict, Integer> groupIndices = new HashMap<>();
+        for (int group = 0; group < groupDistricts.size() - 1; group++) {
+            groupIndices.put(groupDistricts.get(group), group);
+        }
+        final List<TreeSet<Integer>> eligibleStations = new ArrayList<>();
+        for (int group = 0; group < groupDistricts.size(); group++) {
+            eligibleStations.add(new TreeSet<>());
+        }
+        final int[] stationGroups = new int[stationCount];
+        final boolean[] removed = new boolean[stationCount];
+        final boolean[] hasWellConnectedNeighbors = new boolean[stationCount];
+        for (int id = 0; id < stationCount; id++) {
+            final BoardDistrict district = gameBoard.findDistrict(graph.getStation(id));
+            stationGroups[id] = district == null ? groupDistricts.size() - 1 : groupIndices.get(district);
+            hasWellConnectedNeighbors[id] = allNeighborsHaveMoreThan(graph, id, 3);
+            if (hasWellConnectedNeighbors[id]) {
+                eligibleStations.get(stationGroups[id]).add(id);
+            }
+        }
+        // Prioritize stations in districts with more stations
+        final Comparator<Integer> groupPriority = Comparator.comparingInt(group -> {
+            final BoardDistrict district = groupDistricts.get(group);
+            return district == null ? 0 : -districtStations.get(district).size();
         });
+        final List<Integer> groupOrder = new ArrayList<>();
+        for (int group = 0; group < groupDistricts.size(); group++) {
+            groupOrder.add(group);
+        }
 
-        Random random = new Random();
+        final int[] firstCandidates = new int[3];
+        final TreeSet<Integer> samePriorityCandidates = new TreeSet<>();
         for (int i = 0; i < stationsToRemove; i++) {
-            List<Station> candidates = removableStations.stream()
-                    .filter(station -> hasLessThanNeighbors(station, 3))
-                    .filter(station -> {
-                        BoardDistrict district = gameBoard.findDistrict(station);
-                        return district == null || districtStations.get(district).size() > minStationsPerDistrict.get(district);
-                    })
-                    .collect(Collectors.toList());
+            // the first three candidates of a stable sort by district size, descending, in station order: districts of
+            // the same size are merged by station order. Districts at their minimum never grow again and are skipped.
+            groupOrder.sort(groupPriority);
+            int candidateCount = 0;
+            for (int g = 0; g < groupOrder.size() && candidateCount < 3; ) {
+                final int levelStart = g;
+                samePriorityCandidates.clear();
+                for (; g < groupOrder.size() && groupPriority.compare(groupOrder.get(levelStart), groupOrder.get(g)) == 0; g++) {
+                    final int group = groupOrder.get(g);
+                    if (isDistrictAtMinimum(groupDistricts.get(group), districtStations, minStationsPerDistrict)) continue;
+                    int taken = 0;
+                    for (Iterator<Integer> ids = eligibleStations.get(group).iterator(); ids.hasNext() && taken < 3; taken++) {
+                        samePriorityCandidates.add(ids.next());
+                    }
+                }
+                for (Iterator<Integer> ids = samePriorityCandidates.iterator(); ids.hasNext() && candidateCount < 3; ) {
+                    firstCandidates[candidateCount++] = ids.next();
+                }
+            }
 
-            if (candidates.isEmpty()) {
+            if (candidateCount == 0) {
                 break; // No more removable stations
             }
 
-            // Prioritize stations in districts with more stations
-            candidates.sort(Comparator.comparingInt(station -> {
-                BoardDistrict district = gameBoard.findDistrict(station);
-                return district == null ? 0 : -districtStations.get(district).size();
-            }));
-
-            Station stationToRemove = candidates.get(random.nextInt(Math.min(candidates.size(), 3)));
-            removableStations.remove(stationToRemove);
-            gameBoard.getStations().remove(stationToRemove);
+            final int removeId = firstCandidates[random.nextInt(candidateCount)];
+            final Station stationToRemove = graph.getStation(removeId);
+            removed[removeId] = true;
+            eligibleStations.get(stationGroups[removeId]).remove(removeId);
+            gameBoard.removeStation(stationToRemove);
+
+            // only the former neighbors of the removed station get new neighbors, so only they and their neighbors
+            // can change their eligibility
+            graph.remove(removeId);
+            for (int direction = 0; direction < 8; direction++) {
+                final int formerNeighbor = graph.getNeighbor(removeId, direction);
+                if (formerNeighbor == -1) continue;
+                updateEligibility(graph, formerNeighbor, removed, hasWellConnectedNeighbors, eligibleStations.get(stationGroups[formerNeighbor]));
+                for (int neighborDirection = 0; neighborDirection < 8; neighborDirection++) {
+                    final int neighbor = graph.getNeighbor(formerNeighbor, neighborDirection);
+                    if (neighbor != -1) {
+                        updateEligibility(graph, neighbor, removed, hasWellConnectedNeighbors, eligibleStations.get(stationGroups[neighbor]));
+                    }
+                }
+            }
 
             // Update the district stations map
-            BoardDistrict district = gameBoard.findDistrict(stationToRemove);
+            final BoardDistrict district = groupDistricts.get(stationGroups[removeId]);
             if (district != null) {
                 districtStations.get(district).remove(stationToRemove);
-                if (districtStations.get(district).size() <= minStationsPerDistrict.get(district)) {
-                    removableStations.removeAll(districtStations.get(district));
-                }
             }
         }
 
         return this;
     }
 
-    private boolean hasLessThanNeighbors(Station station, int maxNeighbors) {
-        Set<Station> neighbors = findNeighbors(station);
-        for (Station neighbor : neighbors) {
-            if (countConnections(neighbor) <= maxNeighbors) {
+    private static boolean isDistrictAtMinimum(BoardDistrict district, Map<BoardDistrict, Set<Station>> districtStations, Map<BoardDistrict, Integer> minStationsPerDistrict) {
+        return district != null && districtStations.get(district).size() <= minStationsPerDistrict.get(district);
+    }
+
+    private static void updateEligibility(StationNeighborGraph graph, int id, boolean[] removed, boolean[] hasWellConnectedNeighbors, Set<Integer> eligibleStations) {
+        hasWellConnectedNeighbors[id] = allNeighborsHaveMoreThan(graph, id, 3);
+        if (hasWellConnectedNeighbors[id] && !removed[id]) {
+            eligibleStations.add(id);
+        } else {
+            eligibleStations.remove(id);
+        }
+    }
+
+    private static boolean allNeighborsHaveMoreThan(StationNeighborGraph graph, int id, int maxNeighbors) {
+        for (int direction = 0; direction < 8; direction++) {
+            final int neighbor = graph.getNeighbor(id, direction);
+            if (neighbor != -1 && graph.countNeighbors(neighbor) <= maxNeighbors) {
                 return false;
             }
         }
         return true;
     }
 
+    final static int[][] NEIGHBOR_DIRECTIONS = {
+            {-1, -1}, {-1, 0}, {-1, 1},
+            {0, -1}, {0, 1},
+            {1, -1}, {1, 0}, {1, 1}
+    };
+
     public Set<Station> findNeighbors(Station station) {
-        Set<Station> neighbors = new HashSet<>();
-        int[][] directions = {
-                {-1, -1}, {-1, 0}, {-1, 1},
-                {0, -1}, {0, 1},
-                {1, -1}, {1, 0}, {1, 1}
-        };
-
-        for (int[] direction : directions) {
+        Set<Station> neighbors = new LinkedHashSet<>();
+        for (int[] direction : NEIGHBOR_DIRECTIONS) {
             int x = station.getX();
             int y = station.getY();
             while (true) {
@@ -385,10 +483,6 @@ public class BoardTemplates {
         return neighbors;
     }
 
-    private int countConnections(Station station) {
-        return findNeighbors(station).size();
-    }
-
     public BoardTemplates stationStartingRedistributeTypes() {
         final List<Station> startingPositions = gameBoard.getStations().stream()
                 .filter(station -> station.getStartingPosition() != -1)
@@ -410,7 +504,7 @@ public class BoardTemplates {
 
             // find doubles
             final Map<Station.StationType, Long> typeCounts = neighbors.stream()
-                    .collect(Collectors.groupingBy(Station::getType, Collectors.counting()));
+                    .collect(Collectors.groupingBy(Station::getType, () -> new EnumMap<>(Station.StationType.class), Collectors.counting()));
             final List<Station.StationType> doubles = typeCounts.entrySet().stream()
                     .filter(entry -> entry.getValue() > 1)
                     .map(Map.Entry::getKey)
@@ -420,8 +514,8 @@ public class BoardTemplates {
             }
 
             // retype one of the doubles to the missing types
-            Collections.shuffle(doubles);
-            Collections.shuffle(missingTypes);
+            shuffle(doubles, random);
+            shuffle(missingTypes, random);
             for (Station.StationType missingType : missingTypes) {
                 if (doubles.isEmpty()) {
                     log.warn("Failed to redistribute station types, not enough doubles");
@@ -444,17 +538,18 @@ public class BoardTemplates {
     // connections
 
     public BoardTemplates connectionsConnectNeighbors() {
-        // connect stations with connections, compute neighbors
+        // connect stations with connections, compute neighbors. neighborhood is symmetric, the board only keeps the
+        // first direction of every edge
         for (Station station : gameBoard.getStations()) {
             for (Station neighbor : findNeighbors(station)) {
-                gameBoard.getConnections().add(new RailwayConnection(station, neighbor));
+                gameBoard.addConnection(new RailwayConnection(station, neighbor));
             }
         }
         return this;
     }
 
     public BoardTemplates connectionsPruneMaxDistance(int maxDistance) {
-        gameBoard.getConnections().removeIf(connection -> {
+        gameBoard.removeConnectionsIf(connection -> {
             final int distance = (int) Math.sqrt(Math.pow(connection.getX1() - connection.getX2(), 2) + Math.pow(connection.getY1() - connection.getY2(), 2));
             return distance > maxDistance;
         });
@@ -471,9 +566,11 @@ public class BoardTemplates {
                 .collect(Collectors.toList());
 
         final Set<RailwayConnection> ignoreConnections = new HashSet<>();
+        // the connections do not change while placing intersections, a single pass over them is enough
+        final Map<BoardDistrict, List<TmpIntersection>> intersectionsPerDistrict = gameBoard.findTrueConnectionIntersectionsPerDistrict();
 
         for (BoardDistrict district : districts) {
-            final List<TmpIntersection> districtIntersections = gameBoard.findTrueConnectionIntersectionsInDistrict(district);
+            final List<TmpIntersection> districtIntersections = new ArrayList<>(intersectionsPerDistrict.get(district));
             if (districtIntersections.isEmpty()) {
                 continue;
             }
@@ -494,11 +591,11 @@ public class BoardTemplates {
             }
 
             // pick random intersection
-            final TmpIntersection intersection = districtIntersections.get((int) (Math.random() * districtIntersections.size()));
+            final TmpIntersection intersection = districtIntersections.get(random.nextInt(districtIntersections.size()));
             final RailwayConnectionIntersection properIntersection = new RailwayConnectionIntersection(intersection.getX(), intersection.getY());
             // pick two random directions from the intersection
             final List<RailwayConnectionIntersection.Direction> directions = new ArrayList<>(intersection.getDirections());
-            Collections.shuffle(directions);
+            shuffle(directions, random);
             properIntersection.setTop(directions.get(0));
             properIntersection.setBottom(directions.get(1));
 
@@ -512,7 +609,7 @@ public class BoardTemplates {
 
     // connections, clear those that hit invalid intersections
     public BoardTemplates connectionsPruneInvalidIntersections() {
-        gameBoard.getConnections().removeIf(connection -> {
+        gameBoard.removeConnectionsIf(connection -> {
             for (RailwayConnectionIntersection intersection : gameBoard.getIntersections()) {
                 if (intersection.intersects(connection)) {
                     // candidate for removal, now check if direction of connection is valid
@@ -530,8 +627,6 @@ public class BoardTemplates {
     // river
 
     public BoardTemplates riverGenerateRandomly(int attempts, int targetLengthAddition) {
-        Random random = new Random();
-
         final int targetLength = (gameBoard.getWidth() + gameBoard.getHeight()) / 2 + targetLengthAddition;
         int bestScore = Integer.MIN_VALUE;
         RiverLayout bestRiver = null;
@@ -542,7 +637,7 @@ public class BoardTemplates {
             final float padding = 1.0f;
 
             // start anywhere around the border
-            RiverLayout.Direction riverDirection = RiverLayout.Direction.values()[(int) (Math.random() * 4)];
+            RiverLayout.Direction riverDirection = RiverLayout.Direction.values()[random.nextInt(4)];
             float x = -padding, y = -padding;
             final float randomX = 3 + random.nextInt(gameBoard.getWidth() - 3);
             final float randomY = 3 + random.nextInt(gameBoard.getHeight() - 3);
@@ -569,7 +664,7 @@ public class BoardTemplates {
             int maxLen = 40;
             for (int i = 0; i < maxLen; i++) {
                 final RiverLayout.Direction previousDirection = riverDirection;
-                riverDirection = riverDirection.divergeChance(0.4f);
+                riverDirection = riverDirection.divergeChance(0.4f, random);
 
                 if (!previousDirection.isDiagonal() && riverDirection.isDiagonal()) {
                     x += previousDirection.getDx() * 0.5f;
@@ -0,0 +1,42 @@
+package de.yanwittmann.nextstation.setup;
+
+import de.yanwittmann.nextstation.model.board.Station;
+
+import java.util.function.Function;
+
+/**
+ * A board scorer that can also tell how the score of a board changes when a single station is moved, removed or
+ * re-typed, without scoring the whole board again.
+ */
+public interface IncrementalBoardScorer extends Function<BoardTemplates, Integer> {
+
+    /**
+     * Scores the board and keeps the state needed to answer the delta queries. The evaluation takes a copy of the
+     * station positions and types, changes to the board are not picked up unless they are reported to the evaluation.
+     */
+    Evaluation evaluate(BoardTemplates board);
+
+    interface Evaluation {
+        int getScore();
+
+        /**
+         * @return the change of the score if the station was moved to the cell, the evaluation is not changed
+         */
+        int moveDelta(Station station, int x, int y);
+
+        int removeDelta(Station station);
+
+        int typeChangeDelta(Station station, Station.StationType type);
+
+        /**
+         * Updates the evaluation for a station that is moved on the board.
+         *
+         * @return the change of the score
+         */
+        int move(Station station, int x, int y);
+
+        int remove(Station station);
+
+        int changeType(Station station, Station.StationType type);
+    }
+}
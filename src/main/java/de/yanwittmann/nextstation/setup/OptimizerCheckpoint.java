@@ -0,0 +1,54 @@
+package de.yanwittmann.nextstation.setup;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import lombok.Data;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Progress of a {@link BoardOptimizer#runBudgeted} run. Since every iteration only depends on the run seed and its
+ * index, the progress is fully described by the iterations that are done, and the best board by its iteration index.
+ */
+@Data
+public class OptimizerCheckpoint {
+    private long seed;
+    // all iterations below the watermark are done, plus the ones in completedAboveWatermark
+    private int watermark;
+    private List<Integer> completedAboveWatermark = new ArrayList<>();
+    private int bestIteration = -1;
+    private int bestScore;
+    private SortedMap<Integer, Integer> scoreHistogram = new TreeMap<>();
+    // run time of all previous runs of this checkpoint
+    private long elapsedNanos;
+
+    public int completedIterations() {
+        return watermark + completedAboveWatermark.size();
+    }
+
+    /**
+     * @return the checkpoint or null if the file does not exist
+     */
+    public static OptimizerCheckpoint read(Path file) throws IOException {
+        if (!Files.exists(file)) return null;
+        return new Gson().fromJson(Files.readString(file, StandardCharsets.UTF_8), OptimizerCheckpoint.class);
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file next to the target and renames it, so that the target either holds the
+     * previous or the new checkpoint, even if the process dies while writing.
+     */
+    public void write(Path file) throws IOException {
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, new GsonBuilder().create().toJson(this), StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
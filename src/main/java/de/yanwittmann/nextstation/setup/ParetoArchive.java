@@ -0,0 +1,132 @@
+package de.yanwittmann.nextstation.setup;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Bounded set of boards that are not dominated by any other board that was offered to it. A board dominates another one
+ * if it is at least as good in all objectives and better in at least one. Once the archive is full, the board with the
+ * smallest crowding distance, the one in the most densely populated part of the front, is dropped.
+ */
+public class ParetoArchive {
+    private final List<BoardObjective> objectives;
+    private final int capacity;
+    private final List<Entry> entries = new ArrayList<>();
+
+    public ParetoArchive(List<BoardObjective> objectives, int capacity) {
+        if (objectives.isEmpty()) {
+            throw new IllegalArgumentException("At least one objective is required");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1, got " + capacity);
+        }
+        this.objectives = new ArrayList<>(objectives);
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return true if the board is part of the front after the offer
+     */
+    public synchronized boolean offer(BoardTemplates board, int[] scores, int iteration) {
+        if (scores.length != objectives.size()) {
+            throw new IllegalArgumentException("Expected " + objectives.size() + " scores, got " + scores.length);
+        }
+        for (Entry entry : entries) {
+            if (dominatesOrEquals(entry.scores, scores)) {
+                return false;
+            }
+        }
+        entries.removeIf(entry -> dominatesOrEquals(scores, entry.scores));
+        final Entry added = new Entry(board, scores.clone(), iteration);
+        entries.add(added);
+        if (entries.size() > capacity) {
+            return entries.remove(mostCrowdedIndex()) != added;
+        }
+        return true;
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the entry of the front with the highest sum of the weighted scores, minimized objectives count negative
+     */
+    public synchronized Entry getBestWeighted() {
+        Entry best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Entry entry : entries) {
+            final double value = weightedScore(entry.scores);
+            if (best == null || value > bestValue || (value == bestValue && entry.iteration < best.iteration)) {
+                best = entry;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    public double weightedScore(int[] scores) {
+        double value = 0;
+        for (int o = 0; o < objectives.size(); o++) {
+            final BoardObjective objective = objectives.get(o);
+            value += objective.getWeight() * (objective.isMaximize() ? scores[o] : -scores[o]);
+        }
+        return value;
+    }
+
+    private boolean dominatesOrEquals(int[] scores, int[] otherScores) {
+        for (int o = 0; o < objectives.size(); o++) {
+            if (objectives.get(o).compare(scores[o], otherScores[o]) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int mostCrowdedIndex() {
+        final int n = entries.size();
+        final double[] crowding = new double[n];
+        final Integer[] order = new Integer[n];
+        for (int o = 0; o < objectives.size(); o++) {
+            final int objective = o;
+            for (int i = 0; i < n; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparingInt(i -> entries.get(i).scores[objective]));
+            final int min = entries.get(order[0]).scores[o];
+            final int max = entries.get(order[n - 1]).scores[o];
+            // the extremes of every objective are always kept
+            crowding[order[0]] = Double.POSITIVE_INFINITY;
+            crowding[order[n - 1]] = Double.POSITIVE_INFINITY;
+            if (max == min) continue;
+            for (int i = 1; i < n - 1; i++) {
+                crowding[order[i]] += (double) ((long) entries.get(order[i + 1]).scores[o] - entries.get(order[i - 1]).scores[o]) / ((long) max - min);
+            }
+        }
+
+        int crowded = 0;
+        for (int i = 1; i < n; i++) {
+            // on equal crowding the later board goes, so that the earlier finds stay
+            if (crowding[i] < crowding[crowded] || (crowding[i] == crowding[crowded] && entries.get(i).iteration > entries.get(crowded).iteration)) {
+                crowded = i;
+            }
+        }
+        return crowded;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Entry {
+        private final BoardTemplates board;
+        private final int[] scores;
+        private final int iteration;
+    }
+}
@@ -0,0 +1,259 @@
+package de.yanwittmann.nextstation.setup;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import de.yanwittmann.nextstation.model.GameBoard;
+import de.yanwittmann.nextstation.util.GeneralUtil;
+import de.yanwittmann.nextstation.util.LruCache;
+import lombok.Data;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * A board recipe as data: the names of {@link BoardTemplates} steps and their parameters, compiled into a
+ * {@link StagedBoardPipeline} by {@link #compile(LruCache)}.
+ * <pre>
+ * {"stages": [
+ *   {"name": "districtsLondon"},
+ *   {"name": "stationsFullyFillEvenlyDistributed"},
+ *   {"name": "stationsRemovePercent", "params": {"removePercent": 0.47, "minStationsPerDistrict": {"CENTERMOST": 9}, "minStationsPerDistrictFallback": 4}},
+ *   {"name": "connectionsPruneMaxDistance", "params": {"maxDistance": 5}}
+ * ]}
+ * </pre>
+ * Every stage draws from its own random stream, seeded with {@link GeneralUtil#derivedSeed(long, long)
+ * derivedSeed(seed, stageIndex)}, so the board after a stage only depends on the stages up to it and the seed. This is
+ * what allows caching the board after a prefix of the stages: the prefix up to the last stage with <code>"cache": true</code>
+ * is cached under its definition and the seed, without such a stage, the leading stages that do not use the random
+ * stream at all are cached under their definition alone. Caching the result of random stages only pays off when the
+ * same seeds are generated again, like in repeated batch jobs.
+ */
+@Data
+public class PipelineSpec {
+    private static final Map<String, StageType> STAGE_TYPES = new ConcurrentHashMap<>();
+
+    private List<StageSpec> stages = new ArrayList<>();
+
+    public static PipelineSpec parse(String json) {
+        final PipelineSpec spec = new Gson().fromJson(json, PipelineSpec.class);
+        spec.stages.forEach(PipelineSpec::stageType);
+        return spec;
+    }
+
+    public static PipelineSpec read(Path file) throws IOException {
+        return parse(Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param resource the classpath resource, like <code>/pipelines/london.json</code>
+     */
+    public static PipelineSpec readResource(String resource) throws IOException {
+        try (InputStream in = PipelineSpec.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new FileNotFoundException("Pipeline resource not found: " + resource);
+            }
+            return parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    public String toJson() {
+        return new Gson().toJson(this);
+    }
+
+    public StagedBoardPipeline compile() {
+        return compile(null);
+    }
+
+    /**
+     * @param prefixCache boards after the cached prefix, may be shared by any number of pipelines, or null to not cache
+     */
+    public StagedBoardPipeline compile(LruCache<String, GameBoard> prefixCache) {
+        final List<StageSpec> stages = new ArrayList<>(this.stages);
+        final List<UnaryOperator<BoardTemplates>> steps = new ArrayList<>();
+        for (StageSpec stage : stages) {
+            steps.add(stageType(stage).factory.apply(stage.params == null ? new JsonObject() : stage.params));
+        }
+
+        final int cachedStages = prefixCache == null ? 0 : cachedPrefixLength(stages);
+        final boolean prefixUsesRandom = stages.subList(0, cachedStages).stream().anyMatch(stage -> stageType(stage).usesRandom);
+        final String prefixKey = new Gson().toJson(stages.subList(0, cachedStages));
+
+        final LongFunction<BoardTemplates> start = seed -> {
+            if (cachedStages == 0) {
+                return BoardTemplates.start(seed);
+            }
+            final String key = prefixUsesRandom ? prefixKey + "#" + seed : prefixKey;
+            final GameBoard prefix = prefixCache.get(key, k -> {
+                final BoardTemplates board = BoardTemplates.start(seed);
+                for (int i = 0; i < cachedStages; i++) {
+                    applyStage(steps.get(i), board, i);
+                }
+                return board.getBoard();
+            });
+            // cached boards are only ever forked, never changed
+            return BoardTemplates.start(prefix.fork(), seed);
+        };
+
+        final StagedBoardPipeline pipeline = StagedBoardPipeline.start(start);
+        for (int i = cachedStages; i < stages.size(); i++) {
+            final int stageIndex = i;
+            pipeline.stage(stages.get(i).name, board -> applyStage(steps.get(stageIndex), board, stageIndex));
+        }
+        return pipeline;
+    }
+
+    private static int cachedPrefixLength(List<StageSpec> stages) {
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            if (stages.get(i).cache) return i + 1;
+        }
+        int length = 0;
+        while (length < stages.size() && !stageType(stages.get(length)).usesRandom) {
+            length++;
+        }
+        return length;
+    }
+
+    // the templates passed along keep the run seed, every stage gets its own stream derived from it
+    private static BoardTemplates applyStage(UnaryOperator<BoardTemplates> step, BoardTemplates board, int stageIndex) {
+        step.apply(BoardTemplates.start(board.getBoard(), GeneralUtil.derivedSeed(board.getSeed(), stageIndex)));
+        return board;
+    }
+
+    private static StageType stageType(StageSpec stage) {
+        final StageType type = STAGE_TYPES.get(stage.name);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown pipeline stage [" + stage.name + "], known stages: " + new TreeSet<>(STAGE_TYPES.keySet()));
+        }
+        return type;
+    }
+
+    /**
+     * Makes a step available to pipeline definitions under the given name.
+     *
+     * @param usesRandom whether the step draws from the random stream, steps that do not may be cached for all seeds
+     * @param factory    creates the step from the parameters of the stage definition
+     */
+    public static void registerStage(String name, boolean usesRandom, Function<JsonObject, UnaryOperator<BoardTemplates>> factory) {
+        STAGE_TYPES.put(name, new StageType(usesRandom, factory));
+    }
+
+    private static void registerFixedStage(String name, boolean usesRandom, UnaryOperator<BoardTemplates> step) {
+        registerStage(name, usesRandom, params -> step);
+    }
+
+    private static JsonElement param(JsonObject params, String name) {
+        final JsonElement value = params.get(name);
+        if (value == null || value.isJsonNull()) {
+            throw new IllegalArgumentException("Missing pipeline stage parameter [" + name + "] in " + params);
+        }
+        return value;
+    }
+
+    private static Map<BoardTemplates.LooseDistrictDefinition, Integer> districtIntMap(JsonObject params, String name) {
+        final Map<BoardTemplates.LooseDistrictDefinition, Integer> values = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> entry : param(params, name).getAsJsonObject().entrySet()) {
+            values.put(BoardTemplates.LooseDistrictDefinition.valueOf(entry.getKey()), entry.getValue().getAsInt());
+        }
+        return values;
+    }
+
+    private static List<BoardTemplates.LooseDistrictDefinition> districtList(JsonObject params, String name) {
+        final List<BoardTemplates.LooseDistrictDefinition> values = new ArrayList<>();
+        final JsonArray array = param(params, name).getAsJsonArray();
+        for (JsonElement element : array) {
+            values.add(BoardTemplates.LooseDistrictDefinition.valueOf(element.getAsString()));
+        }
+        return values;
+    }
+
+    static {
+        // district layout
+        registerFixedStage("districtsLondon", false, BoardTemplates::districtsLondon);
+        registerFixedStage("districtsParis", false, BoardTemplates::districtsParis);
+        registerFixedStage("districtsParisAddCenter", false, BoardTemplates::districtsParisAddCenter);
+
+        // stations
+        registerFixedStage("stationsFullyFillRandom", true, BoardTemplates::stationsFullyFillRandom);
+        registerFixedStage("stationsFullyFillEvenlyDistributed", true, BoardTemplates::stationsFullyFillEvenlyDistributed);
+        registerFixedStage("stationsRedistributeTypes", true, BoardTemplates::stationsRedistributeTypes);
+        registerFixedStage("stationsPickStartingLocations", true, BoardTemplates::stationsPickStartingLocations);
+        registerFixedStage("stationStartingRedistributeTypes", true, BoardTemplates::stationStartingRedistributeTypes);
+        registerStage("stationsRemovePercent", true, params -> {
+            final float removePercent = param(params, "removePercent").getAsFloat();
+            final Map<BoardTemplates.LooseDistrictDefinition, Integer> minStations = params.has("minStationsPerDistrict") ? districtIntMap(params, "minStationsPerDistrict") : Map.of();
+            final int fallback = param(params, "minStationsPerDistrictFallback").getAsInt();
+            return board -> board.stationsRemovePercent(removePercent, minStations, fallback);
+        });
+        registerStage("monumentPickRandomStationPerDistrict", true, params -> {
+            final int minStationCount = param(params, "minStationCount").getAsInt();
+            final float maxMonumentPercent = param(params, "maxMonumentPercent").getAsFloat();
+            return board -> board.monumentPickRandomStationPerDistrict(minStationCount, maxMonumentPercent);
+        });
+        registerFixedStage("monumentMakeAllJoker", false, BoardTemplates::monumentMakeAllJoker);
+        registerStage("pickJokerStations", true, params -> {
+            final List<BoardTemplates.LooseDistrictDefinition> districts = districtList(params, "districts");
+            return board -> board.pickJokerStations(districts);
+        });
+
+        // connections and intersections
+        registerFixedStage("connectionsConnectNeighbors", false, BoardTemplates::connectionsConnectNeighbors);
+        registerStage("connectionsPruneMaxDistance", false, params -> {
+            final int maxDistance = param(params, "maxDistance").getAsInt();
+            return board -> board.connectionsPruneMaxDistance(maxDistance);
+        });
+        registerStage("intersectionsAddRandomPerDistrict", true, params -> {
+            final int minStationCount = param(params, "minStationCount").getAsInt();
+            return board -> board.intersectionsAddRandomPerDistrict(minStationCount);
+        });
+        registerFixedStage("connectionsPruneInvalidIntersections", false, BoardTemplates::connectionsPruneInvalidIntersections);
+
+        // river
+        registerStage("riverGenerateRandomly", true, params -> {
+            final int attempts = param(params, "attempts").getAsInt();
+            final int targetLengthAddition = param(params, "targetLengthAddition").getAsInt();
+            return board -> board.riverGenerateRandomly(attempts, targetLengthAddition);
+        });
+
+        // scoring and cards
+        registerFixedStage("scoreLondon", false, BoardTemplates::scoreLondon);
+        registerFixedStage("scoreLondonAlt", false, BoardTemplates::scoreLondonAlt);
+        registerFixedStage("scoreParis", false, BoardTemplates::scoreParis);
+        registerFixedStage("cardsStationRegular", false, BoardTemplates::cardsStationRegular);
+        registerFixedStage("cardsStationParis", false, BoardTemplates::cardsStationParis);
+        registerFixedStage("cardsSharedObjectiveAll", false, BoardTemplates::cardsSharedObjectiveAll);
+        registerFixedStage("cardsSharedObjectiveLondon", false, BoardTemplates::cardsSharedObjectiveLondon);
+        registerFixedStage("cardsSharedObjectiveParis", false, BoardTemplates::cardsSharedObjectiveParis);
+    }
+
+    @Data
+    public static class StageSpec {
+        private String name;
+        private JsonObject params;
+        private boolean cache;
+    }
+
+    private static class StageType {
+        private final boolean usesRandom;
+        private final Function<JsonObject, UnaryOperator<BoardTemplates>> factory;
+
+        private StageType(boolean usesRandom, Function<JsonObject, UnaryOperator<BoardTemplates>> factory) {
+            this.usesRandom = usesRandom;
+            this.factory = factory;
+        }
+    }
+}
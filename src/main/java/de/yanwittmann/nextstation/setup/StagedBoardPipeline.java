@@ -0,0 +1,118 @@
+package de.yanwittmann.nextstation.setup;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * A board generator split into named stages, where bounds can be attached after a stage. A bound is an optimistic
+ * estimate of the final score: if the final score is maximized, no board that continues from the current state can
+ * score higher than the bound, if it is minimized, none can score lower. When the bound shows that a board cannot beat
+ * the best board so far, the remaining stages are skipped.
+ * <p>
+ * The stages run on the random stream of the board like a plain template chain would, so the boards that make it
+ * through all stages are the same ones the chain would produce.
+ */
+public class StagedBoardPipeline {
+    private final LongFunction<BoardTemplates> start;
+    private final List<Stage> stages = new ArrayList<>();
+
+    private StagedBoardPipeline(LongFunction<BoardTemplates> start) {
+        this.start = start;
+    }
+
+    public static StagedBoardPipeline start() {
+        return new StagedBoardPipeline(BoardTemplates::start);
+    }
+
+    public static StagedBoardPipeline start(LongFunction<BoardTemplates> start) {
+        return new StagedBoardPipeline(start);
+    }
+
+    public StagedBoardPipeline stage(String name, UnaryOperator<BoardTemplates> step) {
+        stages.add(new Stage(name, step));
+        return this;
+    }
+
+    /**
+     * Attaches the bound to the last stage.
+     */
+    public StagedBoardPipeline bound(Function<BoardTemplates, Integer> bound) {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("Bounds must be attached after a stage");
+        }
+        stages.get(stages.size() - 1).bounds.add(bound);
+        return this;
+    }
+
+    /**
+     * @return a generator that always runs all stages
+     */
+    public LongFunction<BoardTemplates> asGenerator() {
+        return seed -> generate(seed, null, true, null);
+    }
+
+    /**
+     * Runs the stages until a bound shows that the board cannot beat the score.
+     *
+     * @param scoreToBeat the score of the best board so far or null to run all stages
+     * @param stats       per stage statistics to update or null
+     * @return the board or null if it was rejected
+     */
+    public BoardTemplates generate(long seed, Integer scoreToBeat, boolean maximize, List<StageStats> stats) {
+        if (stats != null) {
+            while (stats.size() < stages.size()) {
+                stats.add(new StageStats(stages.get(stats.size()).name));
+            }
+        }
+        BoardTemplates board = start.apply(seed);
+        for (int s = 0; s < stages.size(); s++) {
+            final Stage stage = stages.get(s);
+            final long stageStart = System.nanoTime();
+            board = stage.step.apply(board);
+            boolean rejected = false;
+            if (scoreToBeat != null) {
+                for (Function<BoardTemplates, Integer> bound : stage.bounds) {
+                    final int value = bound.apply(board);
+                    // the first strictly better board wins, so a board that can at best tie is of no use
+                    if (maximize ? value <= scoreToBeat : value >= scoreToBeat) {
+                        rejected = true;
+                        break;
+                    }
+                }
+            }
+            if (stats != null) {
+                final StageStats stageStats = stats.get(s);
+                stageStats.runs++;
+                stageStats.nanos += System.nanoTime() - stageStart;
+                if (rejected) stageStats.rejected++;
+            }
+            if (rejected) return null;
+        }
+        return board;
+    }
+
+    private static class Stage {
+        private final String name;
+        private final UnaryOperator<BoardTemplates> step;
+        private final List<Function<BoardTemplates, Integer>> bounds = new ArrayList<>();
+
+        private Stage(String name, UnaryOperator<BoardTemplates> step) {
+            this.name = name;
+            this.step = step;
+        }
+    }
+
+    @Data
+    public static class StageStats {
+        private final String name;
+        private int runs;
+        private int rejected;
+        // including the bounds of the stage
+        private long nanos;
+    }
+}
@@ -0,0 +1,101 @@
+package de.yanwittmann.nextstation.setup;
+
+import de.yanwittmann.nextstation.model.GameBoard;
+import de.yanwittmann.nextstation.model.board.Station;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The line-of-sight neighbors of all stations of a board in the 8 directions of
+ * {@link BoardTemplates#NEIGHBOR_DIRECTIONS}, as {@link BoardTemplates#findNeighbors(Station)} would find them.
+ * <p>
+ * Stations are identified by their index in the station list at construction time. Removing a station only relinks
+ * the two stations it separated on each of its four lines, instead of walking the rays of all stations again.
+ */
+class StationNeighborGraph {
+    private final List<Station> stations;
+    // 8 entries per station, in the order of NEIGHBOR_DIRECTIONS, -1 if there is no neighbor in that direction
+    private final int[] neighbors;
+    private final boolean[] removed;
+
+    StationNeighborGraph(GameBoard gameBoard) {
+        this.stations = new ArrayList<>(gameBoard.getStations());
+        this.neighbors = new int[stations.size() * 8];
+        this.removed = new boolean[stations.size()];
+        Arrays.fill(neighbors, -1);
+
+        final Map<Station, Integer> ids = new IdentityHashMap<>();
+        for (int id = 0; id < stations.size(); id++) {
+            ids.put(stations.get(id), id);
+        }
+
+        for (int id = 0; id < stations.size(); id++) {
+            final Station station = stations.get(id);
+            for (int direction = 0; direction < 8; direction++) {
+                int x = station.getX();
+                int y = station.getY();
+                while (true) {
+                    x += BoardTemplates.NEIGHBOR_DIRECTIONS[direction][0];
+                    y += BoardTemplates.NEIGHBOR_DIRECTIONS[direction][1];
+                    final Station neighbor = gameBoard.getStationAt(x, y);
+                    if (neighbor != null) {
+                        neighbors[id * 8 + direction] = ids.get(neighbor);
+                        break;
+                    }
+                    if (x < 0 || x >= gameBoard.getWidth() || y < 0 || y >= gameBoard.getHeight()) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    int size() {
+        return stations.size();
+    }
+
+    Station getStation(int id) {
+        return stations.get(id);
+    }
+
+    boolean isRemoved(int id) {
+        return removed[id];
+    }
+
+    int getNeighbor(int id, int direction) {
+        return neighbors[id * 8 + direction];
+    }
+
+    int countNeighbors(int id) {
+        int count = 0;
+        for (int direction = 0; direction < 8; direction++) {
+            if (neighbors[id * 8 + direction] != -1) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Removes the station from the graph, the stations on either side of it on each line become neighbors.
+     * The neighbors of the removed station are the only stations whose neighbors change.
+     */
+    void remove(int id) {
+        removed[id] = true;
+        for (int direction = 0; direction < 8; direction++) {
+            // directions are ordered so that the opposite of direction d is 7 - d
+            final int ahead = neighbors[id * 8 + direction];
+            final int behind = neighbors[id * 8 + 7 - direction];
+            if (behind != -1) {
+                neighbors[behind * 8 + direction] = ahead;
+            }
+            if (ahead != -1) {
+                neighbors[ahead * 8 + 7 - direction] = behind;
+            }
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package de.yanwittmann.nextstation.setup;
+
+import de.yanwittmann.nextstation.model.GameBoard;
+import de.yanwittmann.nextstation.model.board.Station;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sums up the squared distances of every station to its <code>k</code> closest other stations.
+ * <p>
+ * The stations are bucketed into a uniform grid sized for about two stations per bucket and the closest stations are
+ * searched ring by ring around the bucket of a station, stopping once no bucket further out can hold a closer station.
+ * Like {@link BoardOptimizer#STATION_SPREAD} did, stations that are {@link Station#equals(Object) equal} to the
+ * station itself are not counted as its neighbors.
+ * <p>
+ * A change to a single station only changes the sums of the station itself and of the stations that have it as one
+ * of their closest stations before or after the change, the {@link SpreadEvaluation} only recomputes these.
+ */
+public class StationSpreadScorer implements IncrementalBoardScorer {
+    private final int k;
+
+    public StationSpreadScorer(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1, got " + k);
+        }
+        this.k = k;
+    }
+
+    @Override
+    public Integer apply(BoardTemplates board) {
+        return score(board.getBoard().getStations());
+    }
+
+    public int score(List<Station> stations) {
+        return new SpreadEvaluation(stations, 0, 0).getScore();
+    }
+
+    @Override
+    public SpreadEvaluation evaluate(BoardTemplates board) {
+        final GameBoard gameBoard = board.getBoard();
+        return new SpreadEvaluation(gameBoard.getStations(), gameBoard.getWidth(), gameBoard.getHeight());
+    }
+
+    public class SpreadEvaluation implements IncrementalBoardScorer.Evaluation {
+        private final Station[] stations;
+        private final Map<Station, Integer> ids = new IdentityHashMap<>();
+        private final int[] xs, ys;
+        private final Station.StationType[] types;
+        private final boolean[] removed;
+        // the bucket grid always covers the board, so that moves on the board never require a rebuild
+        private final int boardWidth, boardHeight;
+
+        private int minX, minY, bucketSize, bucketsX, bucketsY;
+        private int[][] bucketMembers;
+        private int[] bucketCounts;
+        private final int[] stationBuckets;
+
+        // the sum of the distances to the k closest stations and the k-th smallest distance of every station
+        private final int[] sums;
+        private final int[] kths;
+        // multiset of the k-th distances, the largest one bounds the search for stations affected by a change
+        private final TreeMap<Integer, Integer> kthCounts = new TreeMap<>();
+        private int score;
+
+        // a change that the closest station queries apply on the fly, -1 if there is none
+        private int overrideId = -1;
+        private int overrideX, overrideY;
+        private Station.StationType overrideType;
+        private boolean overrideRemoved;
+
+        private final int[] closest = new int[k];
+        private int querySum, queryKth;
+        private int[] affected = new int[16];
+        private int affectedCount;
+        private final int[] affectedMarks;
+        private int markGeneration;
+
+        private SpreadEvaluation(List<Station> stationList, int boardWidth, int boardHeight) {
+            this.stations = stationList.toArray(new Station[0]);
+            final int n = stations.length;
+            this.xs = new int[n];
+            this.ys = new int[n];
+            this.types = new Station.StationType[n];
+            this.removed = new boolean[n];
+            this.stationBuckets = new int[n];
+            this.sums = new int[n];
+            this.kths = new int[n];
+            this.affectedMarks = new int[n];
+            this.boardWidth = boardWidth;
+            this.boardHeight = boardHeight;
+            for (int id = 0; id < n; id++) {
+                ids.put(stations[id], id);
+                xs[id] = stations[id].getX();
+                ys[id] = stations[id].getY();
+                types[id] = stations[id].getType();
+            }
+            rebuild();
+        }
+
+        @Override
+        public int getScore() {
+            return score;
+        }
+
+        @Override
+        public int moveDelta(Station station, int x, int y) {
+            final int id = idOf(station);
+            return change(id, x, y, types[id], false, false);
+        }
+
+        @Override
+        public int removeDelta(Station station) {
+            final int id = idOf(station);
+            return change(id, xs[id], ys[id], types[id], true, false);
+        }
+
+        @Override
+        public int typeChangeDelta(Station station, Station.StationType type) {
+            final int id = idOf(station);
+            return change(id, xs[id], ys[id], type, false, false);
+        }
+
+        @Override
+        public int move(Station station, int x, int y) {
+            final int id = idOf(station);
+            return change(id, x, y, types[id], false, true);
+        }
+
+        @Override
+        public int remove(Station station) {
+            final int id = idOf(station);
+            return change(id, xs[id], ys[id], types[id], true, true);
+        }
+
+        @Override
+        public int changeType(Station station, Station.StationType type) {
+            final int id = idOf(station);
+            return change(id, xs[id], ys[id], type, false, true);
+        }
+
+        private int idOf(Station station) {
+            final Integer id = ids.get(station);
+            if (id == null || removed[id]) {
+                throw new IllegalArgumentException("Station is not part of the evaluated board: " + station);
+            }
+            return id;
+        }
+
+        private int change(int id, int x, int y, Station.StationType type, boolean remove, boolean commit) {
+            // the station itself, the stations that have it as one of their closest stations now and the ones that
+            // would have it as one of their closest stations after the change
+            markGeneration++;
+            affectedCount = 0;
+            addAffected(id);
+            collectAffected(id, xs[id], ys[id], false);
+            if (!remove) {
+                collectAffected(id, x, y, true);
+            }
+
+            if (commit) {
+                for (int i = 0; i < affectedCount; i++) {
+                    removeKth(kths[affected[i]]);
+                }
+                removeFromBucket(id);
+                xs[id] = x;
+                ys[id] = y;
+                types[id] = type;
+                if (remove) {
+                    removed[id] = true;
+                } else if (!isInsideBuckets(x, y)) {
+                    final int previousScore = score;
+                    rebuild();
+                    return score - previousScore;
+                } else {
+                    addToBucket(id);
+                }
+            } else {
+                overrideId = id;
+                overrideX = x;
+                overrideY = y;
+                overrideType = type;
+                overrideRemoved = remove;
+            }
+
+            int delta = 0;
+            for (int i = 0; i < affectedCount; i++) {
+                final int a = affected[i];
+                if (a == id && remove) {
+                    querySum = 0;
+                    queryKth = -1;
+                } else if (a == id) {
+                    queryClosest(a, x, y, type);
+                } else {
+                    queryClosest(a, xs[a], ys[a], types[a]);
+                }
+                delta += querySum - sums[a];
+                if (commit) {
+                    sums[a] = querySum;
+                    kths[a] = queryKth;
+                    if (!removed[a]) {
+                        addKth(queryKth);
+                    }
+                }
+            }
+            overrideId = -1;
+
+            if (commit) {
+                score += delta;
+            }
+            return delta;
+        }
+
+        private void rebuild() {
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+            int n = 0;
+            for (int id = 0; id < stations.length; id++) {
+                if (removed[id]) continue;
+                minX = Math.min(minX, xs[id]);
+                minY = Math.min(minY, ys[id]);
+                maxX = Math.max(maxX, xs[id]);
+                maxY = Math.max(maxY, ys[id]);
+                n++;
+            }
+            if (boardWidth > 0 && boardHeight > 0) {
+                minX = Math.min(minX, 0);
+                minY = Math.min(minY, 0);
+                maxX = Math.max(maxX, boardWidth - 1);
+                maxY = Math.max(maxY, boardHeight - 1);
+            }
+            if (minX > maxX) {
+                minX = minY = maxX = maxY = 0;
+            }
+
+            final long area = ((long) maxX - minX + 1) * ((long) maxY - minY + 1);
+            this.minX = minX;
+            this.minY = minY;
+            this.bucketSize = (int) Math.max(1, Math.min(Integer.MAX_VALUE / 2, Math.round(Math.sqrt(area * 2.0 / Math.max(1, n)))));
+            this.bucketsX = (maxX - minX) / bucketSize + 1;
+            this.bucketsY = (maxY - minY) / bucketSize + 1;
+            this.bucketMembers = new int[bucketsX * bucketsY][];
+            this.bucketCounts = new int[bucketsX * bucketsY];
+            for (int id = 0; id < stations.length; id++) {
+                if (!removed[id]) {
+                    addToBucket(id);
+                }
+            }
+
+            kthCounts.clear();
+            score = 0;
+            for (int id = 0; id < stations.length; id++) {
+                if (removed[id]) continue;
+                queryClosest(id, xs[id], ys[id], types[id]);
+                sums[id] = querySum;
+                kths[id] = queryKth;
+                addKth(queryKth);
+                score += querySum;
+            }
+        }
+
+        /**
+         * Finds the k closest stations of the station, as if it was on the given cell with the given type and the
+         * override was applied, and stores their distance sum and the k-th distance in the query fields.
+         */
+        private void queryClosest(int id, int x, int y, Station.StationType type) {
+            int found = 0;
+            if (overrideId != -1 && overrideId != id && !overrideRemoved) {
+                found = offerClosest(id, x, y, type, overrideId, overrideX, overrideY, overrideType, found);
+            }
+
+            final int bx = Math.floorDiv(x - minX, bucketSize);
+            final int by = Math.floorDiv(y - minY, bucketSize);
+            final int maxRing = maxRing(bx, by);
+            for (int ring = 0; ring <= maxRing; ring++) {
+                for (int cy = by - ring; cy <= by + ring; cy++) {
+                    if (cy < 0 || cy >= bucketsY) continue;
+                    // only the border of the ring, the inner buckets have been searched before
+                    final int step = cy == by - ring || cy == by + ring ? 1 : Math.max(1, 2 * ring);
+                    for (int cx = bx - ring; cx <= bx + ring; cx += step) {
+                        if (cx < 0 || cx >= bucketsX) continue;
+                        final int b = cy * bucketsX + cx;
+                        final int[] members = bucketMembers[b];
+                        for (int s = 0; s < bucketCounts[b]; s++) {
+                            final int other = members[s];
+                            if (other == id || other == overrideId) continue;
+                            found = offerClosest(id, x, y, type, other, xs[other], ys[other], types[other], found);
+                        }
+                    }
+                }
+                // every station outside this ring is at least ring * bucketSize + 1 away along one axis
+                final long nextRingDistance = (long) ring * bucketSize + 1;
+                if (found == k && closest[k - 1] <= nextRingDistance * nextRingDistance) {
+                    break;
+                }
+            }
+
+            int sum = 0;
+            for (int c = 0; c < found; c++) {
+                sum += closest[c];
+            }
+            querySum = sum;
+            queryKth = found == k ? closest[k - 1] : Integer.MAX_VALUE;
+        }
+
+        private int offerClosest(int id, int x, int y, Station.StationType type, int other, int otherX, int otherY, Station.StationType otherType, int found) {
+            final int dx = otherX - x;
+            final int dy = otherY - y;
+            if (dx == 0 && dy == 0 && isEqualStation(id, type, other, otherType)) return found;
+            final int distance = dx * dx + dy * dy;
+            if (found < k) {
+                return insertSorted(closest, found, distance);
+            } else if (distance < closest[k - 1]) {
+                insertSorted(closest, k - 1, distance);
+            }
+            return found;
+        }
+
+        /**
+         * {@link Station#equals(Object)} for two stations on the same cell, with the types of the evaluation.
+         */
+        private boolean isEqualStation(int id, Station.StationType type, int other, Station.StationType otherType) {
+            return type == otherType
+                   && stations[id].isMonument() == stations[other].isMonument()
+                   && stations[id].getStartingPosition() == stations[other].getStartingPosition();
+        }
+
+        /**
+         * Marks all stations that have the cell within their k-th distance, or strictly closer than it.
+         */
+        private void collectAffected(int changedId, int x, int y, boolean strict) {
+            if (kthCounts.isEmpty()) return;
+            final long maxKth = kthCounts.lastKey();
+            final int bx = Math.floorDiv(x - minX, bucketSize);
+            final int by = Math.floorDiv(y - minY, bucketSize);
+            final int maxRing = maxRing(bx, by);
+            for (int ring = 0; ring <= maxRing; ring++) {
+                // the ring can only hold stations up to maxKth away if its closest cell is within that distance
+                final long ringDistance = Math.max(0, (long) (ring - 1) * bucketSize + 1);
+                if (ring > 0 && ringDistance * ringDistance > maxKth) break;
+                for (int cy = by - ring; cy <= by + ring; cy++) {
+                    if (cy < 0 || cy >= bucketsY) continue;
+                    final int step = cy == by - ring || cy == by + ring ? 1 : Math.max(1, 2 * ring);
+                    for (int cx = bx - ring; cx <= bx + ring; cx += step) {
+                        if (cx < 0 || cx >= bucketsX) continue;
+                        final int b = cy * bucketsX + cx;
+                        final int[] members = bucketMembers[b];
+                        for (int s = 0; s < bucketCounts[b]; s++) {
+                            final int other = members[s];
+                            if (other == changedId) continue;
+                            final int dx = xs[other] - x;
+                            final int dy = ys[other] - y;
+                            final int distance = dx * dx + dy * dy;
+                            if (strict ? distance < kths[other] : distance <= kths[other]) {
+                                addAffected(other);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        private void addAffected(int id) {
+            if (affectedMarks[id] == markGeneration) return;
+            affectedMarks[id] = markGeneration;
+            if (affectedCount == affected.length) {
+                affected = Arrays.copyOf(affected, affected.length * 2);
+            }
+            affected[affectedCount++] = id;
+        }
+
+        private int maxRing(int bx, int by) {
+            return Math.max(Math.max(Math.abs(bx), Math.abs(bucketsX - 1 - bx)), Math.max(Math.abs(by), Math.abs(bucketsY - 1 - by)));
+        }
+
+        private boolean isInsideBuckets(int x, int y) {
+            return x >= minX && y >= minY && (x - minX) / bucketSize < bucketsX && (y - minY) / bucketSize < bucketsY;
+        }
+
+        private void addToBucket(int id) {
+            final int b = ((ys[id] - minY) / bucketSize) * bucketsX + (xs[id] - minX) / bucketSize;
+            if (bucketMembers[b] == null) {
+                bucketMembers[b] = new int[4];
+            } else if (bucketCounts[b] == bucketMembers[b].length) {
+                bucketMembers[b] = Arrays.copyOf(bucketMembers[b], bucketCounts[b] * 2);
+            }
+            bucketMembers[b][bucketCounts[b]++] = id;
+            stationBuckets[id] = b;
+        }
+
+        private void removeFromBucket(int id) {
+            final int b = stationBuckets[id];
+            final int[] members = bucketMembers[b];
+            for (int s = 0; s < bucketCounts[b]; s++) {
+                if (members[s] == id) {
+                    members[s] = members[--bucketCounts[b]];
+                    return;
+                }
+            }
+        }
+
+        private void addKth(int kth) {
+            kthCounts.merge(kth, 1, Integer::sum);
+        }
+
+        private void removeKth(int kth) {
+            kthCounts.computeIfPresent(kth, (key, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    /**
+     * Inserts the distance into the ascending first <code>count</code> entries of the array.
+     *
+     * @return the new number of entries
+     */
+    private static int insertSorted(int[] closest, int count, int distance) {
+        int position = count;
+        while (position > 0 && closest[position - 1] > distance) {
+            closest[position] = closest[position - 1];
+            position--;
+        }
+        closest[position] = distance;
+        return count + 1;
+    }
+}
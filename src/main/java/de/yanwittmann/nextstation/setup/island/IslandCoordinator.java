@@ -0,0 +1,195 @@
+package de.yanwittmann.nextstation.setup.island;
+
+import de.yanwittmann.nextstation.model.GameBoard;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hub of the island model: every worker runs its own search and sends its best board to the coordinator after each
+ * epoch, the coordinator passes it on to the next worker of the ring and keeps track of the best board of all workers.
+ * Only listens on the loopback interface.
+ */
+@Slf4j
+public class IslandCoordinator implements Closeable {
+    private final ServerSocket serverSocket;
+    private final boolean maximize;
+
+    private IslandMessage best;
+
+    /**
+     * @param port the port to listen on or 0 for any free port, see {@link #getPort()}
+     */
+    public IslandCoordinator(int port, boolean maximize) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.maximize = maximize;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Waits for the workers to connect, relays their boards until all of them are done and shuts them down.
+     *
+     * @return the best board any worker sent or null if there was none
+     */
+    public GameBoard run(int workerCount) throws IOException {
+        final WorkerConnection[] connections = new WorkerConnection[workerCount];
+        // fail instead of waiting forever if a worker process does not come up
+        serverSocket.setSoTimeout((int) TimeUnit.MINUTES.toMillis(1));
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                final Socket socket = serverSocket.accept();
+                final WorkerConnection connection = new WorkerConnection(socket);
+                final IslandMessage hello = IslandMessage.read(connection.in);
+                final int index = hello.getWorkerIndex();
+                if (hello.getType() != IslandMessage.Type.HELLO || index < 0 || index >= workerCount || connections[index] != null) {
+                    connection.close();
+                    throw new IOException("Unexpected first message from worker: " + hello.getType() + " " + index);
+                }
+                connections[index] = connection;
+                log.info("worker {} connected from {}", index, socket.getRemoteSocketAddress());
+            }
+
+            final List<Thread> relays = new ArrayList<>();
+            for (int i = 0; i < workerCount; i++) {
+                final int index = i;
+                final Thread relay = new Thread(() -> relay(connections, index), "island-relay-" + i);
+                relay.start();
+                relays.add(relay);
+            }
+            for (Thread relay : relays) {
+                relay.join();
+            }
+
+            for (WorkerConnection connection : connections) {
+                connection.send(IslandMessage.shutdown());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for island workers", e);
+        } finally {
+            for (WorkerConnection connection : connections) {
+                if (connection != null) connection.close();
+            }
+        }
+
+        final IslandMessage result = getBest();
+        if (result == null) return null;
+        log.info("best board: {} from worker {} in epoch {}", result.getScore(), result.getWorkerIndex(), result.getEpoch());
+        return GameBoard.deserialize(result.getBoard());
+    }
+
+    private void relay(WorkerConnection[] connections, int index) {
+        final WorkerConnection connection = connections[index];
+        try {
+            while (true) {
+                final IslandMessage message = IslandMessage.read(connection.in);
+                if (message.getType() == IslandMessage.Type.DONE) {
+                    log.info("worker {} is done", index);
+                    return;
+                } else if (message.getType() == IslandMessage.Type.MIGRANT) {
+                    offer(message);
+                    if (connections.length > 1) {
+                        connections[(index + 1) % connections.length].send(message);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("lost connection to worker {}: {}", index, e.getMessage());
+        }
+    }
+
+    private synchronized void offer(IslandMessage message) {
+        if (best == null || (maximize ? message.getScore() > best.getScore() : message.getScore() < best.getScore())) {
+            best = message;
+            log.info("new best: {} from worker {} in epoch {}", message.getScore(), message.getWorkerIndex(), message.getEpoch());
+        }
+    }
+
+    private synchronized IslandMessage getBest() {
+        return best;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private static class WorkerConnection {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private WorkerConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        // several relays may pass boards to the same worker
+        private synchronized void send(IslandMessage message) {
+            try {
+                message.write(out);
+            } catch (IOException e) {
+                log.warn("could not send to worker: {}", e.getMessage());
+            }
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.warn("could not close worker connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Starts a coordinator and the given number of {@link IslandWorker} processes on this machine, each with its own
+     * small heap, and waits for the result.
+     * <p>
+     * Arguments: <code>[workers] [seed] [epochs] [pipeline]</code>, see {@link IslandWorker#main(String[])} for the
+     * pipeline.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final int workerCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        final long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        final int epochs = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        final String pipeline = args.length > 3 ? args[3] : IslandWorker.DEFAULT_PIPELINE;
+
+        try (IslandCoordinator coordinator = new IslandCoordinator(0, true)) {
+            final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            final List<Process> processes = new ArrayList<>();
+            for (int i = 0; i < workerCount; i++) {
+                processes.add(new ProcessBuilder(java, "-Xmx256m", "-cp", System.getProperty("java.class.path"), IslandWorker.class.getName(),
+                        String.valueOf(coordinator.getPort()), String.valueOf(i), String.valueOf(seed), String.valueOf(epochs), pipeline)
+                        .inheritIO()
+                        .start());
+            }
+
+            final GameBoard best = coordinator.run(workerCount);
+            for (Process process : processes) {
+                if (!process.waitFor(1, TimeUnit.MINUTES)) {
+                    process.destroyForcibly();
+                }
+            }
+            if (best != null) {
+                log.info("best board has {} stations", best.getStations().size());
+            }
+        }
+    }
+}
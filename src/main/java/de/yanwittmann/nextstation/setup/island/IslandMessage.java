@@ -0,0 +1,90 @@
+package de.yanwittmann.nextstation.setup.island;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A frame of the island protocol: the message type, the worker index, the epoch, the score and a length-prefixed
+ * UTF-8 board as written by {@link de.yanwittmann.nextstation.model.GameBoard#serialize()}, with a length of -1 if
+ * there is no board.
+ */
+@Data
+@AllArgsConstructor
+class IslandMessage {
+    // boards are a few dozen kilobytes, anything much larger is a broken stream
+    private final static int MAX_BOARD_BYTES = 64 * 1024 * 1024;
+
+    private final Type type;
+    private final int workerIndex;
+    private final int epoch;
+    private final int score;
+    private final String board;
+
+    static IslandMessage hello(int workerIndex) {
+        return new IslandMessage(Type.HELLO, workerIndex, -1, 0, null);
+    }
+
+    static IslandMessage migrant(int workerIndex, int epoch, int score, String board) {
+        return new IslandMessage(Type.MIGRANT, workerIndex, epoch, score, board);
+    }
+
+    static IslandMessage done(int workerIndex) {
+        return new IslandMessage(Type.DONE, workerIndex, -1, 0, null);
+    }
+
+    static IslandMessage shutdown() {
+        return new IslandMessage(Type.SHUTDOWN, -1, -1, 0, null);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeInt(workerIndex);
+        out.writeInt(epoch);
+        out.writeInt(score);
+        if (board == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = board.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.flush();
+    }
+
+    static IslandMessage read(DataInputStream in) throws IOException {
+        final int typeIndex = in.readUnsignedByte();
+        if (typeIndex >= Type.values().length) {
+            throw new IOException("Unknown island message type " + typeIndex);
+        }
+        final int workerIndex = in.readInt();
+        final int epoch = in.readInt();
+        final int score = in.readInt();
+        final int length = in.readInt();
+        if (length > MAX_BOARD_BYTES || length < -1) {
+            throw new IOException("Invalid island message board length: " + length + " bytes");
+        }
+        String board = null;
+        if (length >= 0) {
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            board = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new IslandMessage(Type.values()[typeIndex], workerIndex, epoch, score, board);
+    }
+
+    enum Type {
+        // worker to coordinator, first message of a worker
+        HELLO,
+        // worker to coordinator: the best board of the worker after an epoch, coordinator to worker: a board of a peer
+        MIGRANT,
+        // worker to coordinator, after the last epoch
+        DONE,
+        // coordinator to worker, after all workers are done
+        SHUTDOWN
+    }
+}
@@ -0,0 +1,159 @@
+package de.yanwittmann.nextstation.setup.island;
+
+import de.yanwittmann.nextstation.model.GameBoard;
+import de.yanwittmann.nextstation.setup.BoardAnnealer;
+import de.yanwittmann.nextstation.setup.BoardOptimizer;
+import de.yanwittmann.nextstation.setup.BoardTemplates;
+import de.yanwittmann.nextstation.setup.PipelineSpec;
+import de.yanwittmann.nextstation.util.GeneralUtil;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * An island of the island model, see {@link IslandCoordinator}. Every epoch, the worker generates a few fresh boards,
+ * picks the best one out of these, its current board and the boards that migrated to it from its peer, anneals that
+ * board and sends it to the coordinator.
+ */
+@Slf4j
+public class IslandWorker {
+    public final static String DEFAULT_PIPELINE = "/pipelines/london-stations.json";
+
+    private final int port;
+    private final int workerIndex;
+    private final LongFunction<BoardTemplates> boardGenerator;
+    private final Function<BoardTemplates, Integer> boardScorer;
+    private final boolean maximize;
+    private final IslandOptions options;
+    private final long seed;
+
+    public IslandWorker(int port, int workerIndex, LongFunction<BoardTemplates> boardGenerator, Function<BoardTemplates, Integer> boardScorer, boolean maximize, IslandOptions options, long seed) {
+        this.port = port;
+        this.workerIndex = workerIndex;
+        this.boardGenerator = boardGenerator;
+        this.boardScorer = boardScorer;
+        this.maximize = maximize;
+        this.options = options;
+        this.seed = seed;
+    }
+
+    /**
+     * Runs all epochs and waits for the coordinator to shut the worker down.
+     *
+     * @return the best board of this worker
+     */
+    public GameBoard run() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            IslandMessage.hello(workerIndex).write(out);
+
+            final Queue<IslandMessage> migrants = new ConcurrentLinkedQueue<>();
+            final Thread receiver = new Thread(() -> receive(in, migrants), "island-receiver-" + workerIndex);
+            receiver.setDaemon(true);
+            receiver.start();
+
+            BoardTemplates current = null;
+            int currentScore = 0;
+            for (int epoch = 0; epoch < options.epochs; epoch++) {
+                final long epochSeed = GeneralUtil.derivedSeed(seed, epoch);
+                if (options.restartsPerEpoch > 0) {
+                    final BoardTemplates restart = BoardOptimizer.runIterations(boardGenerator, boardScorer, maximize, options.restartsPerEpoch, epochSeed);
+                    final int restartScore = boardScorer.apply(restart);
+                    if (current == null || isBetter(restartScore, currentScore)) {
+                        current = restart;
+                        currentScore = restartScore;
+                    }
+                }
+
+                IslandMessage migrant;
+                while ((migrant = migrants.poll()) != null) {
+                    if (current == null || isBetter(migrant.getScore(), currentScore)) {
+                        current = BoardTemplates.start(GameBoard.deserialize(migrant.getBoard()));
+                        currentScore = boardScorer.apply(current);
+                        log.info("[worker {}] [epoch {}] took over {} from worker {}", workerIndex, epoch, currentScore, migrant.getWorkerIndex());
+                    }
+                }
+                if (current == null) continue;
+
+                // the annealer leaves the board in its best state, which is never worse than the starting state
+                current = BoardOptimizer.runAnnealing(BoardTemplates.start(current.getBoard(), epochSeed), boardScorer, maximize, options.annealing);
+                currentScore = boardScorer.apply(current);
+                log.info("[worker {}] [epoch {}/{}] best: {}", workerIndex, epoch + 1, options.epochs, currentScore);
+                IslandMessage.migrant(workerIndex, epoch, currentScore, current.getBoard().serialize()).write(out);
+            }
+
+            IslandMessage.done(workerIndex).write(out);
+            receiver.join(TimeUnit.MINUTES.toMillis(1));
+            return current == null ? null : current.getBoard();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the island coordinator", e);
+        }
+    }
+
+    private void receive(DataInputStream in, Queue<IslandMessage> migrants) {
+        try {
+            while (true) {
+                final IslandMessage message = IslandMessage.read(in);
+                if (message.getType() == IslandMessage.Type.SHUTDOWN) {
+                    return;
+                } else if (message.getType() == IslandMessage.Type.MIGRANT) {
+                    migrants.add(message);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("[worker {}] lost connection to the coordinator: {}", workerIndex, e.getMessage());
+        }
+    }
+
+    private boolean isBetter(int score, int otherScore) {
+        return maximize ? score > otherScore : score < otherScore;
+    }
+
+    @Data
+    public static class IslandOptions {
+        private int epochs = 10;
+        private int restartsPerEpoch = 20;
+        private BoardAnnealer.AnnealingOptions annealing = new BoardAnnealer.AnnealingOptions();
+    }
+
+    /**
+     * Runs a worker on the boards of a {@link PipelineSpec}, scored by {@link BoardOptimizer#STATION_SPREAD}.
+     * <p>
+     * Arguments: <code>port workerIndex seed [epochs] [pipeline]</code>, the worker seed is derived from the run seed and
+     * the index. The pipeline is a file or a classpath resource, {@value #DEFAULT_PIPELINE} by default. It has to stop
+     * before the connections are generated, as only station layouts can be annealed.
+     */
+    public static void main(String[] args) throws IOException {
+        final int port = Integer.parseInt(args[0]);
+        final int workerIndex = Integer.parseInt(args[1]);
+        final long seed = GeneralUtil.derivedSeed(Long.parseLong(args[2]), workerIndex);
+        final IslandOptions options = new IslandOptions();
+        if (args.length > 3) {
+            options.setEpochs(Integer.parseInt(args[3]));
+        }
+        final PipelineSpec pipeline = readPipeline(args.length > 4 ? args[4] : DEFAULT_PIPELINE);
+
+        new IslandWorker(port, workerIndex, pipeline.compile().asGenerator(), BoardOptimizer.STATION_SPREAD, true, options, seed).run();
+    }
+
+    static PipelineSpec readPipeline(String location) throws IOException {
+        final Path file = Path.of(location);
+        return Files.isRegularFile(file) ? PipelineSpec.read(file) : PipelineSpec.readResource(location);
+    }
+}
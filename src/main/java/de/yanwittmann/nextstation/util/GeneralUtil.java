@@ -1,8 +1,12 @@
 package de.yanwittmann.nextstation.util;
 
+import java.util.List;
+import java.util.SplittableRandom;
 import java.util.function.Consumer;
 
 public abstract class GeneralUtil {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
     @SafeVarargs
     public static <T> T with(T instance, Consumer<T>... consumer) {
         for (Consumer<T> c : consumer) {
@@ -10,4 +14,32 @@ public abstract class GeneralUtil {
         }
         return instance;
     }
+
+    /**
+     * Same algorithm as {@link java.util.Collections#shuffle(List, java.util.Random)}, but drawing from a
+     * {@link SplittableRandom} so that pipelines can own their random stream.
+     */
+    public static <T> void shuffle(List<T> list, SplittableRandom random) {
+        for (int i = list.size(); i > 1; i--) {
+            final int j = random.nextInt(i);
+            list.set(j, list.set(i - 1, list.get(j)));
+        }
+    }
+
+    @SafeVarargs
+    public static <T> T randomElement(SplittableRandom random, T... array) {
+        return array[random.nextInt(array.length)];
+    }
+
+    /**
+     * Returns the value that the <code>index + 1</code>-th call to {@link SplittableRandom#nextLong()} on a
+     * <code>new SplittableRandom(seed)</code> would return, without having to step through the previous values.
+     * This allows handing out independent, reproducible seeds to iterations that run in any order on any thread.
+     */
+    public static long derivedSeed(long seed, long index) {
+        long z = seed + (index + 1) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
 }
@@ -0,0 +1,90 @@
+package de.yanwittmann.nextstation.util;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash set of primitive <code>long</code> values, avoids boxing every key into a {@link Long}.
+ * Only supports adding and lookups, rebuild the set via {@link #clear()} to remove entries.
+ */
+public class LongHashSet {
+    // 0 marks a free slot, the key 0 itself is tracked separately
+    private long[] slots;
+    private boolean containsZero;
+    private int size;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        this.slots = new long[capacityFor(expectedSize)];
+    }
+
+    public boolean add(long key) {
+        if (key == 0) {
+            if (containsZero) return false;
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int slot = slotOf(key, slots.length);
+        while (slots[slot] != 0) {
+            if (slots[slot] == key) return false;
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        slots[slot] = key;
+        size++;
+        if (size * 2 > slots.length) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == 0) return containsZero;
+        int slot = slotOf(key, slots.length);
+        while (slots[slot] != 0) {
+            if (slots[slot] == key) return true;
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0);
+        containsZero = false;
+        size = 0;
+    }
+
+    private void grow() {
+        final long[] oldSlots = slots;
+        slots = new long[oldSlots.length * 2];
+        for (long key : oldSlots) {
+            if (key != 0) {
+                int slot = slotOf(key, slots.length);
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & (slots.length - 1);
+                }
+                slots[slot] = key;
+            }
+        }
+    }
+
+    static int slotOf(long key, int capacity) {
+        // spread the bits, packed coordinates only differ in a few of them
+        long z = key * 0x9e3779b97f4a7c15L;
+        return (int) (z ^ (z >>> 32)) & (capacity - 1);
+    }
+
+    static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,84 @@
+package de.yanwittmann.nextstation.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Open addressing hash map from primitive <code>long</code> keys to non-null values, avoids boxing every key.
+ * Values are iterated in insertion order. Entries cannot be removed.
+ */
+public class LongObjectHashMap<V> {
+    private long[] keys;
+    // index of the entry in the values plus one, 0 marks a free slot
+    private int[] entries;
+    private final List<V> values = new ArrayList<>();
+
+    public LongObjectHashMap() {
+        this(16);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        final int capacity = LongHashSet.capacityFor(expectedSize);
+        this.keys = new long[capacity];
+        this.entries = new int[capacity];
+    }
+
+    public V get(long key) {
+        int slot = LongHashSet.slotOf(key, keys.length);
+        while (entries[slot] != 0) {
+            if (keys[slot] == key) return values.get(entries[slot] - 1);
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return the previous value or null if the key was not present yet
+     */
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Values must not be null");
+        }
+        int slot = LongHashSet.slotOf(key, keys.length);
+        while (entries[slot] != 0) {
+            if (keys[slot] == key) {
+                // the entry keeps its position in the iteration order
+                return values.set(entries[slot] - 1, value);
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        keys[slot] = key;
+        values.add(value);
+        entries[slot] = values.size();
+        if (values.size() * 2 > keys.length) {
+            grow();
+        }
+        return null;
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public List<V> values() {
+        return Collections.unmodifiableList(values);
+    }
+
+    private void grow() {
+        final long[] oldKeys = keys;
+        final int[] oldEntries = entries;
+        keys = new long[oldKeys.length * 2];
+        entries = new int[oldEntries.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldEntries[i] != 0) {
+                int slot = LongHashSet.slotOf(oldKeys[i], keys.length);
+                while (entries[slot] != 0) {
+                    slot = (slot + 1) & (keys.length - 1);
+                }
+                keys[slot] = oldKeys[i];
+                entries[slot] = oldEntries[i];
+            }
+        }
+    }
+}
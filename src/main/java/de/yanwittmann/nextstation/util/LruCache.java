@@ -0,0 +1,105 @@
+package de.yanwittmann.nextstation.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread safe map that evicts the least recently used entries once the total weight of its values exceeds the maximum,
+ * by default every value weighs 1, which makes the maximum an entry count.
+ * Values computed by {@link #get(Object, Function)} are computed outside the lock, so two threads missing the same key
+ * at once may both compute it, the first value stays in the cache. Only use it for values that are the same no matter
+ * who computes them.
+ */
+public class LruCache<K, V> {
+    private final long maxWeight;
+    private final ToLongFunction<? super V> weigher;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long hits, misses;
+
+    public LruCache(int capacity) {
+        this(capacity, value -> 1);
+    }
+
+    public LruCache(long maxWeight, ToLongFunction<? super V> weigher) {
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException("Maximum weight must be positive: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    public V get(K key, Function<K, V> compute) {
+        final V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        final V computed = compute.apply(key);
+        synchronized (this) {
+            final V present = entries.get(key);
+            if (present != null) return present;
+            insert(key, computed);
+            return computed;
+        }
+    }
+
+    /**
+     * @return the cached value or null, counts as a hit or miss
+     */
+    public synchronized V getIfPresent(K key) {
+        final V value = entries.get(key);
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        final V previous = entries.remove(key);
+        if (previous != null) {
+            weight -= weigher.applyAsLong(previous);
+        }
+        insert(key, value);
+    }
+
+    private void insert(K key, V value) {
+        entries.put(key, value);
+        weight += weigher.applyAsLong(value);
+        // the new entry is the most recently used one and stays, even if it exceeds the maximum on its own
+        final Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight && entries.size() > 1) {
+            weight -= weigher.applyAsLong(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,213 @@
+package de.yanwittmann.nextstation.util;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.stream.IntStream;
+
+/**
+ * Pixel loops of the {@link TextureAccess.TextureData} operations, working on the <code>int[]</code> of
+ * {@link BufferedImage#TYPE_INT_ARGB} images instead of a <code>getRGB</code> or <code>fillRect</code> call per pixel.
+ * The blending replicates the integer arithmetic of the Java2D software loops for an {@link AlphaComposite#SRC_OVER}
+ * color fill onto a non-premultiplied ARGB image, so the results are identical to drawing each pixel with a
+ * {@link Graphics2D}. Large images are split into row blocks that run on the common fork-join pool.
+ */
+class PixelKernels {
+    private final static int PARALLEL_MIN_PIXELS = 1 << 16;
+    private final static int ROWS_PER_TASK = 16;
+
+    // same tables as the Java2D native loops: MUL8[a][b] ~ a * b / 255, DIV8[a][b] ~ b * 255 / a, clamped to 255
+    private final static byte[] MUL8 = new byte[256 * 256];
+    private final static byte[] DIV8 = new byte[256 * 256];
+
+    static {
+        for (int i = 1; i < 256; i++) {
+            final long increment = (i << 16) + (i << 8) + i;
+            long value = increment + (1 << 23);
+            for (int j = 1; j < 256; j++) {
+                MUL8[(i << 8) + j] = (byte) (value >>> 24);
+                value += increment;
+            }
+        }
+        for (int i = 1; i < 256; i++) {
+            final long increment = (0xff000000L + i / 2) / i;
+            long value = 1 << 23;
+            for (int j = 0; j < i; j++) {
+                DIV8[(i << 8) + j] = (byte) (value >>> 24);
+                value += increment;
+            }
+            for (int j = i; j < 256; j++) {
+                DIV8[(i << 8) + j] = (byte) 255;
+            }
+        }
+    }
+
+    private static int mul8(int a, int b) {
+        return MUL8[(a << 8) + b] & 0xFF;
+    }
+
+    private static int div8(int value, int alpha) {
+        return DIV8[(alpha << 8) + value] & 0xFF;
+    }
+
+    /**
+     * A color fill with an alpha composite: the color alpha is scaled by the composite alpha like
+     * <code>SunGraphics2D.validateColor</code> does, the components are premultiplied.
+     */
+    private static class SrcOverFill {
+        private final int alpha, red, green, blue;
+
+        private SrcOverFill(Color color, float opacity) {
+            this.alpha = Math.round(opacity * color.getAlpha());
+            if (alpha == 255) {
+                this.red = color.getRed();
+                this.green = color.getGreen();
+                this.blue = color.getBlue();
+            } else {
+                this.red = mul8(alpha, color.getRed());
+                this.green = mul8(alpha, color.getGreen());
+                this.blue = mul8(alpha, color.getBlue());
+            }
+        }
+
+        private int blend(int pixel) {
+            // Java2D skips the fill entirely for a transparent color
+            if (alpha == 0) return pixel;
+            final int destinationFactor = mul8(255 - alpha, pixel >>> 24);
+            final int resultAlpha = destinationFactor + alpha;
+            int resultRed = mul8(destinationFactor, (pixel >> 16) & 0xFF) + red;
+            int resultGreen = mul8(destinationFactor, (pixel >> 8) & 0xFF) + green;
+            int resultBlue = mul8(destinationFactor, pixel & 0xFF) + blue;
+            if (resultAlpha != 0 && resultAlpha < 255) {
+                resultRed = div8(resultRed, resultAlpha);
+                resultGreen = div8(resultGreen, resultAlpha);
+                resultBlue = div8(resultBlue, resultAlpha);
+            }
+            return (resultAlpha << 24) | (resultRed << 16) | (resultGreen << 8) | resultBlue;
+        }
+    }
+
+    /**
+     * @see TextureAccess.TextureData#tintNonTransparent(Color, float)
+     */
+    static BufferedImage tintNonTransparent(BufferedImage image, Color tintColor, float tintOpacity) {
+        final int[] source = argbPixels(image);
+        final BufferedImage tinted = copyToIntArgb(image);
+        final int[] target = intArgbData(tinted);
+        final SrcOverFill fill = new SrcOverFill(tintColor, tintOpacity);
+        forEachRowBlock(image.getWidth(), image.getHeight(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                if ((source[i] & 0xFF000000) != 0) {
+                    target[i] = fill.blend(target[i]);
+                }
+            }
+        });
+        return tinted;
+    }
+
+    /**
+     * @see TextureAccess.TextureData#tintOnlyColorWithThreshold(Color, float, Color, int)
+     */
+    static BufferedImage tintOnlyColorWithThreshold(BufferedImage image, Color tintColor, float tintOpacity, Color refColor, int threshold) {
+        final int[] source = argbPixels(image);
+        final BufferedImage tinted = copyToIntArgb(image);
+        final int[] target = intArgbData(tinted);
+        final SrcOverFill fill = new SrcOverFill(tintColor, tintOpacity);
+        final int refRed = refColor.getRed();
+        final int refGreen = refColor.getGreen();
+        final int refBlue = refColor.getBlue();
+        forEachRowBlock(image.getWidth(), image.getHeight(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                final int color = source[i];
+                // the alpha of the source pixel is ignored, like the original per pixel check did
+                if (Math.abs(((color >> 16) & 0xFF) - refRed) <= threshold
+                    && Math.abs(((color >> 8) & 0xFF) - refGreen) <= threshold
+                    && Math.abs((color & 0xFF) - refBlue) <= threshold) {
+                    target[i] = fill.blend(target[i]);
+                }
+            }
+        });
+        return tinted;
+    }
+
+    /**
+     * @return <code>{left, top, right, bottom}</code>: the first and last column and row with a pixel that is not
+     * fully transparent, or the full image size if there is none
+     */
+    static int[] visibleBounds(BufferedImage image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int[] pixels = argbPixels(image);
+        final int[] rowLeft = new int[height];
+        final int[] rowRight = new int[height];
+        forEachRowBlock(width, height, (from, to) -> {
+            for (int y = from / width; y < to / width; y++) {
+                int left = -1, right = -1;
+                for (int x = 0, i = y * width; x < width; x++, i++) {
+                    if ((pixels[i] & 0xFF000000) != 0) {
+                        if (left == -1) left = x;
+                        right = x;
+                    }
+                }
+                rowLeft[y] = left;
+                rowRight[y] = right;
+            }
+        });
+
+        int left = Integer.MAX_VALUE, right = -1, top = -1, bottom = -1;
+        for (int y = 0; y < height; y++) {
+            if (rowLeft[y] == -1) continue;
+            if (top == -1) top = y;
+            bottom = y;
+            left = Math.min(left, rowLeft[y]);
+            right = Math.max(right, rowRight[y]);
+        }
+        if (top == -1) {
+            return new int[]{0, 0, width, height};
+        }
+        return new int[]{left, top, right, bottom};
+    }
+
+    /**
+     * @return the pixels in ARGB, as {@link BufferedImage#getRGB(int, int)} returns them, not to be changed
+     */
+    private static int[] argbPixels(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB && image.getRaster().getParent() == null
+            && image.getRaster().getDataBuffer().getOffset() == 0) {
+            return intArgbData(image);
+        }
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    // drawn like the Graphics2D based operations did, which keeps their conversion of translucent pixels
+    private static BufferedImage copyToIntArgb(BufferedImage image) {
+        final BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = copy.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return copy;
+    }
+
+    private static int[] intArgbData(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    private interface PixelRange {
+        void apply(int from, int to);
+    }
+
+    /**
+     * Runs the range over all pixel indices, split into blocks of whole rows for large images.
+     */
+    private static void forEachRowBlock(int width, int height, PixelRange range) {
+        if ((long) width * height < PARALLEL_MIN_PIXELS) {
+            range.apply(0, width * height);
+        } else {
+            final int blocks = (height + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+            IntStream.range(0, blocks).parallel().forEach(block -> {
+                final int fromRow = block * ROWS_PER_TASK;
+                range.apply(fromRow * width, Math.min(height, fromRow + ROWS_PER_TASK) * width);
+            });
+        }
+    }
+}
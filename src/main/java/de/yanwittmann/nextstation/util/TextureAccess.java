@@ -1,15 +1,40 @@
 package de.yanwittmann.nextstation.util;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 @Slf4j
 public class TextureAccess {
@@ -19,103 +44,180 @@ public class TextureAccess {
     public final static String SCORE_DIR = "score/";
     public final static String CARD_DIR = "card/";
 
+    // decoded resource images by path, shared by all textures of the TexturesIndex
+    private final static LruCache<String, BufferedImage> DECODED_IMAGES = new LruCache<>(256);
+    // rendered images of composed textures by path, bounded by the size of their pixel data
+    private final static LruCache<String, BufferedImage> RENDERED_IMAGES = new LruCache<>(128L << 20, image -> 4L * image.getWidth() * image.getHeight());
+    private final static ConcurrentHashMap<String, CompletableFuture<BufferedImage>> RENDERING = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the rendered image for the path, renders it if it is not cached. Threads asking for a path that is being
+     * rendered wait for that result instead of rendering it again.
+     */
+    static boolean isRendered(TextureData texture) {
+        return RENDERED_IMAGES.getIfPresent(texture.path) != null;
+    }
+
+    private static BufferedImage render(String path, Supplier<BufferedImage> renderer) {
+        final BufferedImage cached = RENDERED_IMAGES.getIfPresent(path);
+        if (cached != null) return cached;
+
+        final CompletableFuture<BufferedImage> own = new CompletableFuture<>();
+        final CompletableFuture<BufferedImage> running = RENDERING.putIfAbsent(path, own);
+        if (running != null) return running.join();
+        try {
+            // another thread may have finished rendering between the lookup and the registration
+            BufferedImage image = RENDERED_IMAGES.getIfPresent(path);
+            if (image == null) {
+                image = renderer.get();
+                RENDERED_IMAGES.put(path, image);
+            }
+            own.complete(image);
+            return image;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            RENDERING.remove(path, own);
+        }
+    }
+
+    /**
+     * Textures are immutable: every operation returns a new texture with a new image and leaves its inputs unchanged.
+     * The image of a texture may be shared with other textures, boards and threads and must not be drawn onto.
+     * <p>
+     * The path of a texture describes how it is composed and is built right away, the image of a composed texture is
+     * only rendered when it is first requested. Rendered images are shared by all textures with the same path, see
+     * {@link #render(String, Supplier)}, so asking for the path or {@link #fileHash()} costs nothing and every distinct
+     * texture is drawn once.
+     */
     @Data
     public static class TextureData {
         private final String path;
+        // decoded resources are passed in directly, composed textures are rendered on demand
+        @Getter(AccessLevel.NONE)
+        @EqualsAndHashCode.Exclude
+        @ToString.Exclude
         private final BufferedImage image;
+        @Getter(AccessLevel.NONE)
+        @EqualsAndHashCode.Exclude
+        @ToString.Exclude
+        private final Supplier<BufferedImage> renderer;
+
+        // only the textures index creates these, so that a path always stands for the same resource image
+        private TextureData(String path, BufferedImage image) {
+            this(path, image, null);
+        }
 
-        public TextureData(String path, BufferedImage image) {
+        private TextureData(String path, BufferedImage image, Supplier<BufferedImage> renderer) {
             this.path = path.replaceAll("^/+", "").replaceAll("/+$", "");
             this.image = image;
+            this.renderer = renderer;
+        }
+
+        private static TextureData composed(String path, Supplier<BufferedImage> renderer) {
+            return new TextureData(path, null, renderer);
+        }
+
+        // only translucent colors add their alpha value, which keeps the paths of the opaque tints that exist
+        private static String alphaSuffix(Color color) {
+            return color.getAlpha() == 255 ? "" : "a" + color.getAlpha();
+        }
+
+        // fractional sizes and transforms render differently, untransformed fonts keep their shorter key
+        private static String fontKey(Font font) {
+            final StringBuilder key = new StringBuilder(font.getName()).append("-").append(font.getStyle()).append("-").append(font.getSize2D());
+            if (font.isTransformed()) {
+                final double[] matrix = new double[6];
+                font.getTransform().getMatrix(matrix);
+                for (double value : matrix) {
+                    key.append("-").append(value);
+                }
+            }
+            return key.toString();
+        }
+
+        /**
+         * @return a copy of the cached image, which the caller may change
+         */
+        public BufferedImage getImage() {
+            return copyImage(sharedImage());
+        }
+
+        // the cached instance, shared by every board of the process; only read by the compositing and the pixel kernels
+        BufferedImage sharedImage() {
+            return image != null ? image : render(path, renderer);
         }
 
         public TextureData overlay(TextureData overlay) {
-            return new TextureData(path + "/" + overlay.path, overlayImages(image, overlay.image));
+            return composed(path + "/" + overlay.path, () -> overlayImages(sharedImage(), overlay.sharedImage()));
         }
 
         public TextureData overlay(TextureData overlay, int x, int y, int width, int height) {
-            final BufferedImage scaledOverlay = scaleImage(overlay.image, width, height);
-            return new TextureData(path + "/" + overlay.path + "_" + x + "-" + y + "-" + width + "-" + height, overlayImages(image, scaledOverlay, x, y));
+            return composed(path + "/" + overlay.path + "_" + x + "-" + y + "-" + width + "-" + height,
+                    () -> overlayImages(sharedImage(), scaleImage(overlay.sharedImage(), width, height), x, y));
         }
 
         public TextureData tintNonTransparent(Color tintColor, float tintOpacity) {
-            final BufferedImage tintedImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
-            final Graphics2D graphics = tintedImage.createGraphics();
-            graphics.drawImage(image, 0, 0, null);
-            for (int x = 0; x < image.getWidth(); x++) {
-                for (int y = 0; y < image.getHeight(); y++) {
-                    final int color = image.getRGB(x, y);
-                    if ((color & 0xFF000000) != 0) {
-                        graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, tintOpacity));
-                        graphics.setColor(tintColor);
-                        graphics.fillRect(x, y, 1, 1);
-                    }
-                }
-            }
-            graphics.dispose();
-            return new TextureData(path + "/tinted-" +
-                    tintColor.getRed() + "-" + tintColor.getGreen() + "-" + tintColor.getBlue() + "-" + tintOpacity,
-                    tintedImage);
+            return composed(path + "/tinted-" +
+                    tintColor.getRed() + "-" + tintColor.getGreen() + "-" + tintColor.getBlue() + alphaSuffix(tintColor) + "-" + tintOpacity,
+                    () -> PixelKernels.tintNonTransparent(sharedImage(), tintColor, tintOpacity));
         }
 
         public TextureData tintOnlyColorWithThreshold(Color tintColor, float tintOpacity, Color refColor, int threshold) {
-            final BufferedImage tintedImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
-            final Graphics2D graphics = tintedImage.createGraphics();
-            graphics.drawImage(image, 0, 0, null);
-            graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, tintOpacity));
-            graphics.setColor(tintColor);
-
-            for (int x = 0; x < image.getWidth(); x++) {
-                for (int y = 0; y < image.getHeight(); y++) {
-                    final int color = image.getRGB(x, y);
-                    final int refRed = refColor.getRed();
-                    final int refGreen = refColor.getGreen();
-                    final int refBlue = refColor.getBlue();
-                    final int red = (color >> 16) & 0xFF;
-                    final int green = (color >> 8) & 0xFF;
-                    final int blue = color & 0xFF;
-
-                    if (Math.abs(red - refRed) <= threshold && Math.abs(green - refGreen) <= threshold && Math.abs(blue - refBlue) <= threshold) {
-                        graphics.fillRect(x, y, 1, 1);
-                    }
-                }
-            }
-            graphics.dispose();
-            return new TextureData(path + "/tinted-" +
-                    tintColor.getRed() + "-" + tintColor.getGreen() + "-" + tintColor.getBlue() + "-" + tintOpacity + "-" +
+            return composed(path + "/tinted-" +
+                    tintColor.getRed() + "-" + tintColor.getGreen() + "-" + tintColor.getBlue() + alphaSuffix(tintColor) + "-" + tintOpacity + "-" +
                     refColor.getRed() + "-" + refColor.getGreen() + "-" + refColor.getBlue() + "-" + threshold,
-                    tintedImage);
+                    () -> PixelKernels.tintOnlyColorWithThreshold(sharedImage(), tintColor, tintOpacity, refColor, threshold));
         }
 
         public TextureData addText(String str, Font font, Color color, float xp, float yp, String alignment) {
-            BufferedImage newImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
-            Graphics2D g = newImage.createGraphics();
-            g.drawImage(image, 0, 0, null);
-            g.setFont(font);
-            g.setColor(color);
-            FontMetrics metrics = g.getFontMetrics(font);
-            int x = (int) (xp * image.getWidth());
-            int y = (int) (yp * image.getHeight());
-
-            if ("center".equalsIgnoreCase(alignment)) {
-                x -= metrics.stringWidth(str) / 2;
-                y += metrics.getAscent() / 2;
-            } else if ("right".equalsIgnoreCase(alignment)) {
-                x -= metrics.stringWidth(str);
-                y += metrics.getAscent() / 2;
-            } else if ("left".equalsIgnoreCase(alignment)) {
-                y += metrics.getAscent() / 2;
-            }
-
-            g.drawString(str, x, y);
-            g.dispose();
-            return new TextureData(path + "/text-" + str, newImage);
+            // all parameters are part of the path, as it identifies the rendered image
+            return composed(path + "/text-" + str + "-" + fontKey(font) + "-" +
+                    color.getRed() + "-" + color.getGreen() + "-" + color.getBlue() + "-" + color.getAlpha() + "-" +
+                    xp + "-" + yp + "-" + alignment,
+                    () -> {
+                        final BufferedImage image = sharedImage();
+                        BufferedImage newImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+                        Graphics2D g = newImage.createGraphics();
+                        g.drawImage(image, 0, 0, null);
+                        g.setFont(font);
+                        g.setColor(color);
+                        FontMetrics metrics = g.getFontMetrics(font);
+                        int x = (int) (xp * image.getWidth());
+                        int y = (int) (yp * image.getHeight());
+
+                        if ("center".equalsIgnoreCase(alignment)) {
+                            x -= metrics.stringWidth(str) / 2;
+                            y += metrics.getAscent() / 2;
+                        } else if ("right".equalsIgnoreCase(alignment)) {
+                            x -= metrics.stringWidth(str);
+                            y += metrics.getAscent() / 2;
+                        } else if ("left".equalsIgnoreCase(alignment)) {
+                            y += metrics.getAscent() / 2;
+                        }
+
+                        g.drawString(str, x, y);
+                        g.dispose();
+                        return newImage;
+                    });
         }
 
         public void write(File dir) throws IOException {
             final File output = new File(dir, fileHash() + ".png");
             output.getParentFile().mkdirs();
-            ImageIO.write(image, "png", output);
+            writeTo(output);
+        }
+
+        // encoded into a temporary file first, so that a failed write never leaves a partial image under the final name
+        private void writeTo(File output) throws IOException {
+            final Path temporary = Files.createTempFile(output.getParentFile().toPath(), fileHash(), ".tmp");
+            try {
+                ImageIO.write(sharedImage(), "png", temporary.toFile());
+                Files.move(temporary, output.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
         }
 
         public String fileHash() {
@@ -128,6 +230,58 @@ public class TextureAccess {
             }
         }
 
+        /**
+         * Writes every distinct texture once as <code>fileHash().png</code>, rendering and encoding them on up to
+         * <code>parallelism</code> threads. Existing files are overwritten, as they may stem from other resources or
+         * renderers.
+         *
+         * @param textures may contain duplicates and null values
+         * @return the written files
+         * @throws IllegalStateException if two different texture paths share a file name
+         */
+        public static Set<File> writeDistinct(Collection<TextureData> textures, File dir, int parallelism) throws IOException {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Could not create directory: " + dir);
+            }
+            final Map<File, String> files = new LinkedHashMap<>();
+            final List<Callable<Void>> tasks = new ArrayList<>();
+            for (TextureData texture : textures) {
+                if (texture == null) continue;
+                final File output = new File(dir, texture.fileHash() + ".png");
+                final String previousPath = files.putIfAbsent(output, texture.path);
+                if (previousPath != null && !previousPath.equals(texture.path)) {
+                    throw new IllegalStateException("Textures " + previousPath + " and " + texture.path + " share the file " + output.getName());
+                }
+                if (previousPath == null) {
+                    tasks.add(() -> {
+                        texture.writeTo(output);
+                        return null;
+                    });
+                }
+            }
+            if (tasks.isEmpty()) {
+                return files.keySet();
+            }
+
+            final ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, tasks.size())));
+            try {
+                for (Future<Void> future : pool.invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing textures to " + dir, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IllegalStateException("Failed to write textures to " + dir, e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+            return files.keySet();
+        }
+
         public static void write(TextureData optTexture, File dir) throws IOException {
             if (optTexture != null) {
                 optTexture.write(dir);
@@ -141,82 +295,56 @@ public class TextureAccess {
         }
 
         public TextureData pad(Color color, int top, int right, int left, int bottom) {
+            return composed(path + "/padded-" + top + "-" + right + "-" + left + "-" + bottom + "-" +
+                    color.getRed() + "-" + color.getGreen() + "-" + color.getBlue() + "-" + color.getAlpha(),
+                    () -> padImage(sharedImage(), color, top, right, left, bottom));
+        }
+
+        private static BufferedImage padImage(BufferedImage image, Color color, int top, int right, int left, int bottom) {
             final BufferedImage paddedImage = new BufferedImage(image.getWidth() + left + right, image.getHeight() + top + bottom, BufferedImage.TYPE_INT_ARGB);
             final Graphics2D graphics = paddedImage.createGraphics();
             graphics.setColor(color);
             graphics.fillRect(0, 0, paddedImage.getWidth(), paddedImage.getHeight());
             graphics.drawImage(image, left, top, null);
             graphics.dispose();
-            return new TextureData(path + "/padded-" + top + "-" + right + "-" + left + "-" + bottom, paddedImage);
+            return paddedImage;
+        }
+
+        /**
+         * Pads the texture and places the badge on its top right corner, as a square of <code>sizePercent</code> of the
+         * width of this texture that sticks out to the right by half. The layout depends on the width, so it is done
+         * when the texture is rendered and the path is known without rendering this texture.
+         */
+        public TextureData withBadge(TextureData badge, int sizePercent, int topPadding) {
+            return composed(path + "/badge-" + sizePercent + "-" + topPadding + "/" + badge.path,
+                    () -> {
+                        final BufferedImage image = sharedImage();
+                        final int size = (int) (image.getWidth() / 100f * sizePercent);
+                        final BufferedImage padded = padImage(image, new Color(0, 0, 0, 0), topPadding, size / 2 + 1, 0, 0);
+                        return overlayImages(padded, scaleImage(badge.sharedImage(), size, size), image.getWidth() - size / 2, 0);
+                    });
         }
 
         public TextureData scale(int newWidth, int newHeight) {
-            return new TextureData(path + "/scaled-" + newWidth + "-" + newHeight, scaleImage(image, newWidth, newHeight));
+            return composed(path + "/scaled-" + newWidth + "-" + newHeight, () -> scaleImage(sharedImage(), newWidth, newHeight));
         }
 
         public TextureData cropToVisibleArea() {
-            // find first pixel top, left, right, bottom and crop to that area
-            int top = 0;
-            int left = 0;
-            int right = image.getWidth();
-            int bottom = image.getHeight();
-            for (int y = 0; y < image.getHeight(); y++) {
-                boolean hasContent = false;
-                for (int x = 0; x < image.getWidth(); x++) {
-                    if ((image.getRGB(x, y) & 0xFF000000) != 0) {
-                        hasContent = true;
-                        break;
-                    }
-                }
-                if (hasContent) {
-                    top = y;
-                    break;
-                }
-            }
-            for (int y = image.getHeight() - 1; y >= 0; y--) {
-                boolean hasContent = false;
-                for (int x = 0; x < image.getWidth(); x++) {
-                    if ((image.getRGB(x, y) & 0xFF000000) != 0) {
-                        hasContent = true;
-                        break;
-                    }
-                }
-                if (hasContent) {
-                    bottom = y;
-                    break;
-                }
-            }
-            for (int x = 0; x < image.getWidth(); x++) {
-                boolean hasContent = false;
-                for (int y = 0; y < image.getHeight(); y++) {
-                    if ((image.getRGB(x, y) & 0xFF000000) != 0) {
-                        hasContent = true;
-                        break;
-                    }
-                }
-                if (hasContent) {
-                    left = x;
-                    break;
-                }
-            }
-            for (int x = image.getWidth() - 1; x >= 0; x--) {
-                boolean hasContent = false;
-                for (int y = 0; y < image.getHeight(); y++) {
-                    if ((image.getRGB(x, y) & 0xFF000000) != 0) {
-                        hasContent = true;
-                        break;
-                    }
-                }
-                if (hasContent) {
-                    right = x;
-                    break;
-                }
-            }
+            return composed(path + "/cropped", () -> cropToVisibleArea(sharedImage()));
+        }
+
+        private static BufferedImage cropToVisibleArea(BufferedImage image) {
+            // first and last column and row with content, the last ones are used as exclusive bounds
+            final int[] bounds = PixelKernels.visibleBounds(image);
+            final int left = bounds[0];
+            final int top = bounds[1];
+            final int right = bounds[2];
+            final int bottom = bounds[3];
             final BufferedImage croppedImage = new BufferedImage(right - left, bottom - top, BufferedImage.TYPE_INT_ARGB);
             final Graphics2D graphics = croppedImage.createGraphics();
             graphics.drawImage(image, 0, 0, right - left, bottom - top, left, top, right, bottom, null);
             graphics.dispose();
-            return new TextureData(path + "/cropped", croppedImage);
+            return croppedImage;
         }
     }
 
@@ -259,12 +387,12 @@ public class TextureAccess {
         }
 
         public TextureData get() {
-            return new TextureData(path, getImageOrFallback(path));
+            return new TextureData(path, getSharedImage(path));
         }
 
         public TextureData get(String filenameSuffix) {
             final String effectivePath = path.replaceAll("\\.png$", "") + filenameSuffix + ".png";
-            return new TextureData(effectivePath, getImageOrFallback(effectivePath));
+            return new TextureData(effectivePath, getSharedImage(effectivePath));
         }
 
         public TexturesIndex otherwise(boolean condition, TexturesIndex other) {
@@ -282,11 +410,15 @@ public class TextureAccess {
         return scaledImage;
     }
 
+    /**
+     * @return a copy of the background, of the same image type, with the overlay drawn onto it
+     */
     public static BufferedImage overlayImages(BufferedImage background, BufferedImage overlay, int x, int y) {
-        final Graphics2D graphics = background.createGraphics();
+        final BufferedImage result = copyImage(background);
+        final Graphics2D graphics = result.createGraphics();
         graphics.drawImage(overlay, x, y, null);
         graphics.dispose();
-        return background;
+        return result;
     }
 
     public static BufferedImage overlayImages(BufferedImage background, BufferedImage overlay) {
@@ -301,12 +433,48 @@ public class TextureAccess {
     }
 
     public static BufferedImage getImage(String path) throws IOException {
-        final InputStream inputStream = getResource(path);
-        if (inputStream == null) throw new IOException("Resource not found: " + path);
-        return ImageIO.read(inputStream);
+        try (InputStream inputStream = getResource(path)) {
+            if (inputStream == null) throw new IOException("Resource not found: " + path);
+            return ImageIO.read(inputStream);
+        }
     }
 
+    /**
+     * Decodes every resource once per process, see {@link #DECODED_IMAGES}.
+     *
+     * @return a copy of the decoded image that the caller may change
+     */
     public static BufferedImage getImageOrFallback(String path) {
+        return copyImage(getSharedImage(path));
+    }
+
+    // the cached instance itself, must not be changed
+    private static BufferedImage getSharedImage(String path) {
+        return DECODED_IMAGES.get(path, TextureAccess::loadImageOrFallback);
+    }
+
+    /**
+     * @return an image of the same type with a copy of the pixel data
+     */
+    public static BufferedImage copyImage(BufferedImage image) {
+        final ColorModel colorModel = image.getColorModel();
+        final WritableRaster source = image.getRaster();
+        final DataBuffer buffer = source.getDataBuffer();
+        final WritableRaster raster;
+        // decoded images own a single bank of pixel data, which is copied as a whole instead of pixel by pixel
+        if (source.getParent() == null && source.getMinX() == 0 && source.getMinY() == 0 && buffer.getNumBanks() == 1
+            && (buffer instanceof DataBufferByte || buffer instanceof DataBufferInt)) {
+            final DataBuffer bufferCopy = buffer instanceof DataBufferByte
+                    ? new DataBufferByte(((DataBufferByte) buffer).getData().clone(), buffer.getSize(), buffer.getOffset())
+                    : new DataBufferInt(((DataBufferInt) buffer).getData().clone(), buffer.getSize(), buffer.getOffset());
+            raster = Raster.createWritableRaster(source.getSampleModel(), bufferCopy, null);
+        } else {
+            raster = image.copyData(source.createCompatibleWritableRaster());
+        }
+        return new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+    }
+
+    private static BufferedImage loadImageOrFallback(String path) {
         try {
             return getImage(path);
         } catch (IOException e) {
@@ -327,8 +495,11 @@ public class TextureAccess {
         graphics.fillRect(0, 0, width, height);
         graphics.setColor(Color.BLACK);
         graphics.setFont(new Font("Arial", Font.BOLD, 48));
-        for (int i = 0; i < 20; i++) {
-            graphics.drawString("?", (int) (Math.random() * width), (int) (Math.random() * height));
+        // fixed positions, the image is cached and must not depend on which missing texture asked for it first
+        for (int row = 0; row < 4; row++) {
+            for (int column = 0; column < 5; column++) {
+                graphics.drawString("?", column * width / 5 + (row % 2) * width / 10, row * height / 4 + height / 5);
+            }
         }
         graphics.setColor(Color.WHITE);
         graphics.drawRect(0, 0, width - 1, height - 1);
@@ -6,6 +6,7 @@ import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 
 import java.io.IOException;
+import java.lang.reflect.Modifier;
 
 public class TextureProviderAdapterFactory implements TypeAdapterFactory {
     @Override
@@ -33,6 +34,15 @@ public class TextureProviderAdapterFactory implements TypeAdapterFactory {
 
             @Override
             public T read(JsonReader in) throws IOException {
+                final Class<? super T> rawType = type.getRawType();
+                if (rawType.isInterface() || Modifier.isAbstract(rawType.getModifiers())) {
+                    // write() turns null values into empty objects, the concrete type of other values is not stored
+                    final JsonElement jsonElement = JsonParser.parseReader(in);
+                    if (jsonElement.isJsonNull() || (jsonElement.isJsonObject() && jsonElement.getAsJsonObject().size() == 0)) {
+                        return null;
+                    }
+                    throw new JsonParseException("Cannot read an instance of the abstract type " + rawType.getName() + ": " + jsonElement);
+                }
                 return delegate.read(in);
             }
         };
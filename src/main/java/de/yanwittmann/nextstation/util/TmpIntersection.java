@@ -4,14 +4,15 @@ import de.yanwittmann.nextstation.model.board.RailwayConnection;
 import de.yanwittmann.nextstation.model.board.RailwayConnectionIntersection;
 import lombok.Data;
 
-import java.util.HashSet;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 @Data
 public class TmpIntersection {
     private int x, y;
-    private Set<RailwayConnectionIntersection.Direction> directions = new HashSet<>();
-    private Set<RailwayConnection> connections = new HashSet<>();
+    private Set<RailwayConnectionIntersection.Direction> directions = EnumSet.noneOf(RailwayConnectionIntersection.Direction.class);
+    private Set<RailwayConnection> connections = new LinkedHashSet<>();
 
     public TmpIntersection(int x, int y) {
         this.x = x;
@@ -1,10 +1,13 @@
 package de.yanwittmann.nextstation.model;
 
+import de.yanwittmann.nextstation.model.board.BoardDistrict;
+import de.yanwittmann.nextstation.model.board.RailwayConnection;
 import de.yanwittmann.nextstation.model.board.RailwayConnectionIntersection;
 import de.yanwittmann.nextstation.model.board.RiverLayout;
 import de.yanwittmann.nextstation.model.board.Station;
 import de.yanwittmann.nextstation.setup.BoardOptimizer;
 import de.yanwittmann.nextstation.setup.BoardTemplates;
+import de.yanwittmann.nextstation.util.TmpIntersection;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 
@@ -12,10 +15,19 @@ import java.awt.*;
 import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 @Slf4j
 class GameBoardTest {
 
@@ -280,4 +292,222 @@ class GameBoardTest {
         }
         frame.dispatchEvent(new WindowEvent(frame, WindowEvent.WINDOW_CLOSING));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void deserializeRestoresLayout() {
+        final GameBoard board = BoardTemplates.start(3)
+                .districtsLondon()
+                .stationsFullyFillEvenlyDistributed()
+                .stationsRemovePercent(0.47f, Map.of(BoardTemplates.LooseDistrictDefinition.CENTERMOST, 9), 4)
+                .connectionsConnectNeighbors()
+                .getBoard();
+
+        final GameBoard copy = GameBoard.deserialize(board.serialize());
+        assertEquals(board.getStations(), copy.getStations());
+        assertEquals(board.getDistricts(), copy.getDistricts());
+        assertEquals(board.getConnections(), copy.getConnections());
+        final Station station = board.getStations().get(0);
+        assertEquals(station, copy.getStationAt(station.getX(), station.getY()));
+    }
+
+    @Test
+    public void seededPipelineReplaysExactly() {
+        for (long seed = 0; seed < 3; seed++) {
+            final GameBoard first = londonBoard(seed);
+            final GameBoard second = londonBoard(seed);
+
+            assertEquals(first.getStations(), second.getStations());
+            assertEquals(first.getConnections(), second.getConnections());
+            assertEquals(first.getIntersections(), second.getIntersections());
+            assertEquals(first.getRiverLayout(), second.getRiverLayout());
+            assertEquals(first.getStationCards(), second.getStationCards());
+            assertEquals(first.getSharedObjectiveCards(), second.getSharedObjectiveCards());
+            assertEquals(first.getTurnWiseScoreContributorA().getClass(), second.getTurnWiseScoreContributorA().getClass());
+        }
+        assertNotEquals(londonBoard(0).getStations(), londonBoard(1).getStations());
+    }
+
+    private static GameBoard londonBoard(long seed) {
+        return BoardTemplates.start(seed)
+                .districtsLondon()
+                .stationsFullyFillEvenlyDistributed()
+                .stationsRemovePercent(0.47f, Map.of(BoardTemplates.LooseDistrictDefinition.CENTERMOST, 9), 4)
+                .stationsRedistributeTypes()
+                .stationsPickStartingLocations()
+                .stationStartingRedistributeTypes()
+                .monumentPickRandomStationPerDistrict(2, 0.4f)
+                .pickJokerStations(List.of(BoardTemplates.LooseDistrictDefinition.CENTERMOST))
+                .connectionsConnectNeighbors()
+                .connectionsPruneMaxDistance(5)
+                .intersectionsAddRandomPerDistrict(3)
+                .connectionsPruneInvalidIntersections()
+                .riverGenerateRandomly(100, 5)
+                .cardsStationRegular()
+                .scoreLondonAlt()
+                .cardsSharedObjectiveAll()
+                .getBoard();
+    }
+
+    @Test
+    public void districtLookupMatchesLinearScan() {
+        final GameBoard board = BoardTemplates.start(2).districtsLondon().getBoard();
+        assertDistrictsMatchLinearScan(board);
+
+        // the lookup is built by now and has to be dropped when the districts change
+        final BoardDistrict added = board.addDistrict(new BoardDistrict(3, 3, 2, 2));
+        assertEquals(added, board.findDistrict(3, 3));
+        assertDistrictsMatchLinearScan(board);
+
+        board.removeDistrict(added);
+        assertNotEquals(added, board.findDistrict(3, 3));
+        assertDistrictsMatchLinearScan(board);
+    }
+
+    private static void assertDistrictsMatchLinearScan(GameBoard board) {
+        for (int y = -1; y <= board.getHeight(); y++) {
+            for (int x = -1; x <= board.getWidth(); x++) {
+                BoardDistrict expected = null;
+                for (BoardDistrict district : board.getDistricts()) {
+                    if (district.containsGeometrically(x, y) && (expected == null || district.area() < expected.area())) {
+                        expected = district;
+                    }
+                }
+                assertEquals(expected, board.findDistrict(x, y), "cell " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    public void stationLookupFollowsAddRemoveAndMove() {
+        final GameBoard board = new GameBoard();
+        board.setWidth(6);
+        board.setHeight(5);
+        final Station first = Station.ofType(1, 1, Station.StationType.CIRCLE);
+        final Station sharing = Station.ofType(1, 1, Station.StationType.TRIANGLE);
+        final Station outside = Station.ofType(7, 2, Station.StationType.PENTAGON);
+        board.addStation(first);
+        assertSame(first, board.getStationAt(1, 1));
+        board.addStation(sharing);
+        board.addStation(outside);
+        board.addStation(Station.ofType(4, 3, Station.StationType.RECTANGLE));
+        assertStationsMatchLinearScan(board);
+
+        // the second station on a cell takes over once the first one leaves it
+        board.moveStation(first, 2, 4);
+        assertSame(sharing, board.getStationAt(1, 1));
+        assertSame(first, board.getStationAt(2, 4));
+        board.moveStation(outside, 0, 0);
+        board.moveStation(sharing, -1, 3);
+        assertSame(sharing, board.getStationAt(-1, 3));
+        assertNull(board.getStationAt(1, 1));
+        assertStationsMatchLinearScan(board);
+
+        final GameBoard fork = board.fork();
+        final Station forkedFirst = fork.getStationAt(2, 4);
+        fork.moveStation(forkedFirst, 5, 0);
+        fork.removeStation(fork.getStationAt(0, 0));
+        fork.addStation(Station.ofType(2, 4, Station.StationType.CIRCLE));
+        assertStationsMatchLinearScan(fork);
+        assertSame(first, board.getStationAt(2, 4));
+        assertSame(outside, board.getStationAt(0, 0));
+        assertNull(board.getStationAt(5, 0));
+        assertStationsMatchLinearScan(board);
+
+        assertTrue(board.removeStation(first));
+        assertNull(board.getStationAt(2, 4));
+        assertStationsMatchLinearScan(board);
+    }
+
+    private static void assertStationsMatchLinearScan(GameBoard board) {
+        for (int x = -2; x < board.getWidth() + 2; x++) {
+            for (int y = -2; y < board.getHeight() + 2; y++) {
+                Station expected = null;
+                for (Station station : board.getStations()) {
+                    if (station.getX() == x && station.getY() == y) {
+                        expected = station;
+                        break;
+                    }
+                }
+                assertSame(expected, board.getStationAt(x, y), "station at " + x + ", " + y);
+            }
+        }
+    }
+
+    @Test
+    public void connectionsAreDeduplicatedInEitherDirection() {
+        final GameBoard board = new GameBoard();
+        assertTrue(board.addConnection(new RailwayConnection(1, 2, 3, 4)));
+        assertFalse(board.addConnection(new RailwayConnection(1, 2, 3, 4)));
+        assertFalse(board.addConnection(new RailwayConnection(3, 4, 1, 2)));
+        assertTrue(board.addConnection(new RailwayConnection(1, 2, 3, 5)));
+        // edge key 0
+        assertTrue(board.addConnection(new RailwayConnection(0, 0, 0, 0)));
+        assertFalse(board.addConnection(new RailwayConnection(0, 0, 0, 0)));
+        assertEquals(3, board.getConnections().size());
+        assertTrue(board.hasConnection(3, 4, 1, 2));
+
+        // the keys are rebuilt from the remaining connections after a removal
+        assertTrue(board.removeConnectionsIf(connection -> connection.getY2() == 4));
+        assertFalse(board.hasConnection(1, 2, 3, 4));
+        assertTrue(board.hasConnection(3, 5, 1, 2));
+        assertTrue(board.addConnection(new RailwayConnection(3, 4, 1, 2)));
+        assertFalse(board.addConnection(new RailwayConnection(1, 2, 3, 4)));
+        assertEquals(3, board.getConnections().size());
+    }
+
+    @Test
+    public void forkLeavesSourceUnchanged() {
+        final BoardTemplates prefix = BoardTemplates.start(3)
+                .districtsLondon()
+                .stationsFullyFillEvenlyDistributed()
+                .connectionsConnectNeighbors();
+        final String before = prefix.getBoard().serialize();
+
+        final GameBoard fork = prefix.fork(4)
+                .stationsRemovePercent(0.47f, Map.of(BoardTemplates.LooseDistrictDefinition.CENTERMOST, 9), 4)
+                .stationsRedistributeTypes()
+                .connectionsPruneMaxDistance(1)
+                .getBoard();
+        fork.addDistrict(new BoardDistrict(4, 4, 2, 2));
+
+        assertEquals(before, prefix.getBoard().serialize());
+        assertEquals(14, fork.getDistricts().size());
+        assertEquals(before, prefix.fork(5).getBoard().serialize());
+    }
+
+    @Test
+    public void intersectionGridMatchesPairwiseScan() {
+        for (long seed = 0; seed < 10; seed++) {
+            final GameBoard board = BoardTemplates.start(seed)
+                    .districtsLondon()
+                    .stationsFullyFillEvenlyDistributed()
+                    .stationsRemovePercent(0.47f, Map.of(), 2)
+                    .connectionsConnectNeighbors()
+                    .getBoard();
+            final Map<BoardDistrict, List<TmpIntersection>> perDistrict = board.findTrueConnectionIntersectionsPerDistrict();
+
+            for (BoardDistrict district : board.getDistricts()) {
+                final Map<Map.Entry<Integer, Integer>, TmpIntersection> expected = new HashMap<>();
+                final List<RailwayConnection> connections = board.getConnections();
+                for (int i = 0; i < connections.size(); i++) {
+                    for (int j = i + 1; j < connections.size(); j++) {
+                        final RailwayConnection connectionA = connections.get(i);
+                        final RailwayConnection connectionB = connections.get(j);
+                        final Map.Entry<Integer, Integer> point = connectionA.intersection(connectionB);
+                        if (point == null || !district.containsGeometrically(point.getKey(), point.getValue()) || board.getStationAt(point.getKey(), point.getValue()) != null) {
+                            continue;
+                        }
+                        final TmpIntersection intersection = expected.computeIfAbsent(point, e -> new TmpIntersection(point.getKey(), point.getValue()));
+                        intersection.getDirections().add(connectionA.getDirection());
+                        intersection.getDirections().add(connectionB.getDirection());
+                        intersection.getConnections().add(connectionA);
+                        intersection.getConnections().add(connectionB);
+                    }
+                }
+
+                assertEquals(new HashSet<>(expected.values()), new HashSet<>(board.findTrueConnectionIntersectionsInDistrict(district)));
+                assertEquals(new HashSet<>(expected.values()), new HashSet<>(perDistrict.get(district)));
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package de.yanwittmann.nextstation.setup;
+
+import de.yanwittmann.nextstation.model.board.Station;
+import de.yanwittmann.nextstation.util.GeneralUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoardAnnealerTest {
+
+    private static final LongFunction<BoardTemplates> LONDON_STATIONS = seed -> BoardTemplates.start(seed)
+            .districtsLondon()
+            .stationsFullyFillEvenlyDistributed()
+            .stationsRemovePercent(0.47f, Map.of(BoardTemplates.LooseDistrictDefinition.CENTERMOST, 9), 4);
+
+    private static final BoardAnnealer.AnnealingOptions OPTIONS = GeneralUtil.with(new BoardAnnealer.AnnealingOptions(),
+            options -> options.setMaxIterations(400));
+
+    @Test
+    public void seededAnnealingIsReproducible() {
+        final BoardTemplates first = BoardOptimizer.runAnnealing(LONDON_STATIONS, BoardOptimizer.STATION_SPREAD, true, OPTIONS, 3);
+        final BoardTemplates second = BoardOptimizer.runAnnealing(LONDON_STATIONS, BoardOptimizer.STATION_SPREAD, true, OPTIONS, 3);
+
+        assertEquals(first.getBoard().getStations(), second.getBoard().getStations());
+        assertNotEquals(LONDON_STATIONS.apply(GeneralUtil.derivedSeed(3, 0)).getBoard().getStations(), first.getBoard().getStations());
+    }
+
+    @Test
+    public void acceptedMoveDeltasMatchFullRescoring() {
+        for (long seed = 0; seed < 3; seed++) {
+            // every accepted move is checked against a full rescore of the board it was applied to
+            final BoardTemplates incremental = BoardOptimizer.runAnnealing(LONDON_STATIONS, new RescoringScorer(), true, OPTIONS, seed);
+            // not an IncrementalBoardScorer, so every move is applied and scored in full
+            final Function<BoardTemplates, Integer> fullScorer = board -> BoardOptimizer.STATION_SPREAD.apply(board);
+            final BoardTemplates full = BoardOptimizer.runAnnealing(LONDON_STATIONS, fullScorer, true, OPTIONS, seed);
+
+            assertEquals(full.getBoard().getStations(), incremental.getBoard().getStations(), "seed " + seed);
+        }
+    }
+
+    @Test
+    public void typeSwapsKeepTheTypeCounts() {
+        final BoardAnnealer.AnnealingOptions swapsOnly = GeneralUtil.with(new BoardAnnealer.AnnealingOptions(),
+                options -> options.setMaxIterations(400),
+                options -> options.setRelocateWeight(0),
+                options -> options.setShiftWeight(1),
+                options -> options.setRetypeWeight(5));
+        final Map<Station.StationType, Long> generated = typeCounts(LONDON_STATIONS.apply(GeneralUtil.derivedSeed(5, 0)));
+        final BoardTemplates incremental = BoardOptimizer.runAnnealing(LONDON_STATIONS, new RescoringScorer(), true, swapsOnly, 5);
+        final BoardTemplates full = BoardOptimizer.runAnnealing(LONDON_STATIONS, board -> BoardOptimizer.STATION_SPREAD.apply(board), true, swapsOnly, 5);
+
+        assertEquals(generated, typeCounts(incremental));
+        assertEquals(full.getBoard().getStations(), incremental.getBoard().getStations());
+    }
+
+    private static Map<Station.StationType, Long> typeCounts(BoardTemplates board) {
+        return board.getBoard().getStations().stream().collect(Collectors.groupingBy(Station::getType, Collectors.counting()));
+    }
+
+    @Test
+    public void rejectsBoardsWithConnections() {
+        final BoardTemplates board = LONDON_STATIONS.apply(1).connectionsConnectNeighbors();
+        assertThrows(IllegalArgumentException.class, () -> BoardOptimizer.runAnnealing(board, BoardOptimizer.STATION_SPREAD, true, OPTIONS));
+    }
+
+    private static class RescoringScorer implements IncrementalBoardScorer {
+        private final StationSpreadScorer scorer = new StationSpreadScorer(3);
+
+        @Override
+        public Integer apply(BoardTemplates board) {
+            return scorer.apply(board);
+        }
+
+        @Override
+        public Evaluation evaluate(BoardTemplates board) {
+            final Evaluation evaluation = scorer.evaluate(board);
+            return new Evaluation() {
+                @Override
+                public int getScore() {
+                    return evaluation.getScore();
+                }
+
+                @Override
+                public int moveDelta(Station station, int x, int y) {
+                    return evaluation.moveDelta(station, x, y);
+                }
+
+                @Override
+                public int removeDelta(Station station) {
+                    return evaluation.removeDelta(station);
+                }
+
+                @Override
+                public int typeChangeDelta(Station station, Station.StationType type) {
+                    return evaluation.typeChangeDelta(station, type);
+                }
+
+                // the annealer reports accepted moves after applying them to the board
+                @Override
+                public int move(Station station, int x, int y) {
+                    final int expectedDelta = scorer.apply(board) - evaluation.getScore();
+                    final int delta = evaluation.move(station, x, y);
+                    assertEquals(expectedDelta, delta);
+                    return delta;
+                }
+
+                @Override
+                public int remove(Station station) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int changeType(Station station, Station.StationType type) {
+                    final int expectedDelta = scorer.apply(board) - evaluation.getScore();
+                    final int delta = evaluation.changeType(station, type);
+                    assertEquals(expectedDelta, delta);
+                    return delta;
+                }
+            };
+        }
+    }
+}
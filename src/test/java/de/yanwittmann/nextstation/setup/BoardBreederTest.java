@@ -0,0 +1,77 @@
+package de.yanwittmann.nextstation.setup;
+
+import de.yanwittmann.nextstation.model.GameBoard;
+import de.yanwittmann.nextstation.model.board.BoardDistrict;
+import de.yanwittmann.nextstation.model.board.Station;
+import de.yanwittmann.nextstation.util.GeneralUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoardBreederTest {
+
+    private static final LongFunction<BoardTemplates> LONDON_STATIONS = seed -> BoardTemplates.start(seed)
+            .districtsLondon()
+            .stationsFullyFillEvenlyDistributed()
+            .stationsRemovePercent(0.47f, Map.of(BoardTemplates.LooseDistrictDefinition.CENTERMOST, 9), 4)
+            .cardsStationRegular()
+            .scoreLondonAlt();
+
+    private static final BoardBreeder.BreedingOptions OPTIONS = GeneralUtil.with(new BoardBreeder.BreedingOptions(),
+            options -> options.setPopulationSize(8),
+            options -> options.setGenerations(3),
+            options -> options.setParallelism(2));
+
+    @Test
+    public void seededBreedingIsReproducible() {
+        final BoardTemplates first = BoardOptimizer.runBreeding(LONDON_STATIONS, BoardOptimizer.STATION_SPREAD, true, OPTIONS, 6);
+        final BoardTemplates second = BoardOptimizer.runBreeding(LONDON_STATIONS, BoardOptimizer.STATION_SPREAD, true, OPTIONS, 6);
+
+        assertEquals(first.getSeed(), second.getSeed());
+        assertEquals(first.getBoard().getStations(), second.getBoard().getStations());
+    }
+
+    @Test
+    public void crossoverTakesEveryDistrictFromOneParent() {
+        final GameBoard parentA = LONDON_STATIONS.apply(1).getBoard();
+        final GameBoard parentB = LONDON_STATIONS.apply(2).getBoard();
+        final Map<BoardDistrict, Set<Station>> stationsA = parentA.computeStationsPerDistrict();
+        final Map<BoardDistrict, Set<Station>> stationsB = parentB.computeStationsPerDistrict();
+
+        boolean tookFromA = false, tookFromB = false;
+        for (long seed = 0; seed < 5; seed++) {
+            final GameBoard child = BoardBreeder.crossover(parentA, parentB, new SplittableRandom(seed));
+            for (Map.Entry<BoardDistrict, Set<Station>> entry : child.computeStationsPerDistrict().entrySet()) {
+                final Set<Station> fromA = new HashSet<>(stationsA.get(entry.getKey()));
+                final Set<Station> fromB = new HashSet<>(stationsB.get(entry.getKey()));
+                final Set<Station> actual = new HashSet<>(entry.getValue());
+                assertTrue(actual.equals(fromA) || actual.equals(fromB), "district " + entry.getKey());
+                tookFromA |= actual.equals(fromA) && !fromA.equals(fromB);
+                tookFromB |= actual.equals(fromB) && !fromA.equals(fromB);
+            }
+            // everything but the stations comes from the first parent
+            assertEquals(parentA.getDistricts(), child.getDistricts());
+            assertEquals(parentA.getStationCards(), child.getStationCards());
+            assertSame(parentA.getEndGameScoreContributorA(), child.getEndGameScoreContributorA());
+        }
+        assertTrue(tookFromA && tookFromB);
+        assertNotEquals(parentA.getStations(), parentB.getStations());
+    }
+
+    @Test
+    public void rejectsBoardsWithConnections() {
+        final IllegalStateException failure = assertThrows(IllegalStateException.class, () -> BoardOptimizer.runBreeding(seed -> LONDON_STATIONS.apply(seed).connectionsConnectNeighbors(),
+                BoardOptimizer.STATION_SPREAD, true, OPTIONS, 6));
+        assertTrue(failure.getCause() instanceof IllegalArgumentException);
+    }
+}
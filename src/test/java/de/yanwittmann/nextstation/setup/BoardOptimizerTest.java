@@ -0,0 +1,184 @@
+package de.yanwittmann.nextstation.setup;
+
+import de.yanwittmann.nextstation.util.GeneralUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoardOptimizerTest {
+
+    private static final LongFunction<BoardTemplates> LONDON_STATIONS = seed -> BoardTemplates.start(seed)
+            .districtsLondon()
+            .stationsFullyFillEvenlyDistributed()
+            .stationsRemovePercent(0.47f, Map.of(BoardTemplates.LooseDistrictDefinition.CENTERMOST, 9), 4);
+
+    @Test
+    public void parallelRunMatchesSequentialRun() {
+        // only 20 distinct scores in 150 iterations, so the tie breaking between workers matters
+        final LongFunction<BoardTemplates> generator = BoardTemplates::start;
+        final Function<BoardTemplates, Integer> scorer = board -> (int) Math.floorMod(board.getSeed(), 20);
+        for (boolean maximize : new boolean[]{true, false}) {
+            final long expectedSeed = BoardOptimizer.runIterations(generator, scorer, maximize, 150, 5).getSeed();
+            for (int parallelism : new int[]{1, 4}) {
+                final BoardOptimizer.OptimizerResult result = BoardOptimizer.runIterationsParallel(generator, scorer, maximize, 150, 5, parallelism);
+                assertEquals(expectedSeed, result.getBestBoard().getSeed());
+                assertEquals(150, result.getIterations());
+                assertEquals(parallelism, result.getWorkerStats().size());
+                assertEquals(150, result.getScoreHistogram().values().stream().mapToInt(Integer::intValue).sum());
+            }
+        }
+    }
+
+    @Test
+    public void resumedRunMatchesUninterruptedRun(@TempDir Path tempDir) throws IOException {
+        final Path checkpointFile = tempDir.resolve("checkpoint.json");
+        BoardOptimizer.runBudgeted(LONDON_STATIONS, BoardOptimizer.STATION_SPREAD, true, GeneralUtil.with(new BoardOptimizer.RunBudget(),
+                budget -> budget.setMaxIterations(25),
+                budget -> budget.setParallelism(2),
+                budget -> budget.setCheckpointFile(checkpointFile)), 11);
+        assertEquals(25, OptimizerCheckpoint.read(checkpointFile).completedIterations());
+
+        final BoardOptimizer.OptimizerResult resumed = BoardOptimizer.runBudgeted(LONDON_STATIONS, BoardOptimizer.STATION_SPREAD, true, GeneralUtil.with(new BoardOptimizer.RunBudget(),
+                budget -> budget.setMaxIterations(60),
+                budget -> budget.setParallelism(2),
+                budget -> budget.setCheckpointFile(checkpointFile)), 11);
+        final BoardOptimizer.OptimizerResult uninterrupted = BoardOptimizer.runBudgeted(LONDON_STATIONS, BoardOptimizer.STATION_SPREAD, true, GeneralUtil.with(new BoardOptimizer.RunBudget(),
+                budget -> budget.setMaxIterations(60)), 11);
+
+        assertEquals(60, resumed.getIterations());
+        assertEquals(uninterrupted.getBestIteration(), resumed.getBestIteration());
+        assertEquals(uninterrupted.getBestScore(), resumed.getBestScore());
+        assertEquals(uninterrupted.getScoreHistogram(), resumed.getScoreHistogram());
+    }
+
+    @Test
+    public void interruptedRunResumesFromThePeriodicCheckpoint(@TempDir Path tempDir) throws IOException {
+        final Path checkpointFile = tempDir.resolve("checkpoint.json");
+        final long stuckSeed = GeneralUtil.derivedSeed(11, 10);
+        // the worker on iteration 10 waits until a periodic checkpoint has every other iteration above it, then dies
+        final LongFunction<BoardTemplates> crashing = seed -> {
+            if (seed == stuckSeed) {
+                final long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+                while (System.nanoTime() - deadline < 0) {
+                    try {
+                        final OptimizerCheckpoint written = OptimizerCheckpoint.read(checkpointFile);
+                        if (written != null && written.getCompletedAboveWatermark().size() == 19) break;
+                        Thread.sleep(5);
+                    } catch (IOException | InterruptedException e) {
+                        break;
+                    }
+                }
+                throw new IllegalStateException("interrupted");
+            }
+            return LONDON_STATIONS.apply(seed);
+        };
+        final BoardOptimizer.RunBudget budget = GeneralUtil.with(new BoardOptimizer.RunBudget(),
+                b -> b.setMaxIterations(30),
+                b -> b.setParallelism(2),
+                b -> b.setCheckpointFile(checkpointFile),
+                b -> b.setCheckpointInterval(Duration.ofMillis(10)));
+        assertThrows(IllegalStateException.class, () -> BoardOptimizer.runBudgeted(crashing, BoardOptimizer.STATION_SPREAD, true, budget, 11));
+
+        final OptimizerCheckpoint interrupted = OptimizerCheckpoint.read(checkpointFile);
+        assertEquals(10, interrupted.getWatermark());
+        assertEquals(IntStream.range(11, 30).boxed().collect(Collectors.toList()), interrupted.getCompletedAboveWatermark());
+
+        final BoardOptimizer.OptimizerResult resumed = BoardOptimizer.runBudgeted(LONDON_STATIONS, BoardOptimizer.STATION_SPREAD, true, budget, 11);
+        final BoardOptimizer.OptimizerResult uninterrupted = BoardOptimizer.runBudgeted(LONDON_STATIONS, BoardOptimizer.STATION_SPREAD, true, GeneralUtil.with(new BoardOptimizer.RunBudget(),
+                b -> b.setMaxIterations(30)), 11);
+
+        // only the iteration that was lost is generated again
+        assertEquals(29, resumed.getResumedIterations());
+        assertEquals(30, resumed.getIterations());
+        assertEquals(30, OptimizerCheckpoint.read(checkpointFile).getWatermark());
+        assertEquals(uninterrupted.getBestIteration(), resumed.getBestIteration());
+        assertEquals(uninterrupted.getBestScore(), resumed.getBestScore());
+        assertEquals(uninterrupted.getScoreHistogram(), resumed.getScoreHistogram());
+    }
+
+    @Test
+    public void budgetedRunsStopOnTheFirstLimitHit() {
+        final BoardOptimizer.OptimizerResult capped = BoardOptimizer.runBudgeted(LONDON_STATIONS, BoardOptimizer.STATION_SPREAD, true, GeneralUtil.with(new BoardOptimizer.RunBudget(),
+                budget -> budget.setMaxIterations(12),
+                budget -> budget.setParallelism(3)), 4);
+        assertEquals(BoardOptimizer.StopReason.MAX_ITERATIONS, capped.getStopReason());
+        assertEquals(12, capped.getIterations());
+
+        final BoardOptimizer.OptimizerResult stagnated = BoardOptimizer.runBudgeted(LONDON_STATIONS, BoardOptimizer.STATION_SPREAD, true, GeneralUtil.with(new BoardOptimizer.RunBudget(),
+                budget -> budget.setMaxIterations(500),
+                budget -> budget.setMaxIterationsWithoutImprovement(5)), 4);
+        assertEquals(BoardOptimizer.StopReason.NO_IMPROVEMENT, stagnated.getStopReason());
+        // a single worker stops at the first iteration that is more than 5 past the best one
+        assertEquals(stagnated.getBestIteration() + 6, stagnated.getIterations());
+
+        // without an iteration limit, only the time limit stops the run
+        final BoardOptimizer.OptimizerResult timed = BoardOptimizer.runBudgeted(LONDON_STATIONS, BoardOptimizer.STATION_SPREAD, true, GeneralUtil.with(new BoardOptimizer.RunBudget(),
+                budget -> budget.setMaxDuration(Duration.ofMillis(200)),
+                budget -> budget.setParallelism(2)), 4);
+        assertEquals(BoardOptimizer.StopReason.TIME_BUDGET, timed.getStopReason());
+        assertTrue(timed.getIterations() > 0);
+    }
+
+    @Test
+    public void noImprovementLimitStopsLikeASingleWorker() {
+        for (long seed = 0; seed < 6; seed++) {
+            final BoardOptimizer.OptimizerResult single = runWithoutImprovementLimit(seed, 1);
+            assertEquals(BoardOptimizer.StopReason.NO_IMPROVEMENT, single.getStopReason());
+            for (int run = 0; run < 2; run++) {
+                final BoardOptimizer.OptimizerResult parallel = runWithoutImprovementLimit(seed, 4);
+                assertEquals(BoardOptimizer.StopReason.NO_IMPROVEMENT, parallel.getStopReason());
+                assertEquals(single.getBestIteration(), parallel.getBestIteration(), "seed " + seed);
+                assertEquals(single.getBestScore(), parallel.getBestScore(), "seed " + seed);
+                assertEquals(GeneralUtil.derivedSeed(seed, single.getBestIteration()), parallel.getBestBoard().getSeed());
+                assertTrue(parallel.getIterations() >= single.getIterations());
+            }
+        }
+    }
+
+    private static BoardOptimizer.OptimizerResult runWithoutImprovementLimit(long seed, int parallelism) {
+        return BoardOptimizer.runBudgeted(LONDON_STATIONS, BoardOptimizer.STATION_SPREAD, true, GeneralUtil.with(new BoardOptimizer.RunBudget(),
+                budget -> budget.setMaxIterations(500),
+                budget -> budget.setMaxIterationsWithoutImprovement(4),
+                budget -> budget.setParallelism(parallelism)), seed);
+    }
+
+    @Test
+    public void riverLengthDeviationHandlesBoardsWithoutRiver() {
+        final BoardTemplates board = LONDON_STATIONS.apply(2);
+        assertEquals(8, BoardOptimizer.riverLengthDeviation(8).apply(board));
+        board.getBoard().setRiverLayout(null);
+        assertEquals(8, BoardOptimizer.riverLengthDeviation(8).apply(board));
+    }
+
+    @Test
+    public void stagedRunMatchesFullRun() {
+        final StagedBoardPipeline pipeline = StagedBoardPipeline.start()
+                .stage("stations", board -> board
+                        .districtsLondon()
+                        .stationsFullyFillEvenlyDistributed()
+                        .stationsRemovePercent(0.47f, Map.of(BoardTemplates.LooseDistrictDefinition.CENTERMOST, 9), 4))
+                .bound(BoardOptimizer.STATION_SPREAD)
+                .stage("connections", board -> board
+                        .stationsRedistributeTypes()
+                        .connectionsConnectNeighbors()
+                        .connectionsPruneMaxDistance(5));
+
+        final BoardTemplates full = BoardOptimizer.runIterations(pipeline.asGenerator(), BoardOptimizer.STATION_SPREAD, true, 40, 5);
+        final BoardTemplates staged = BoardOptimizer.runStaged(pipeline, BoardOptimizer.STATION_SPREAD, true, 40, 5);
+
+        assertEquals(full.getSeed(), staged.getSeed());
+        assertEquals(BoardOptimizer.STATION_SPREAD.apply(full), BoardOptimizer.STATION_SPREAD.apply(staged));
+    }
+}
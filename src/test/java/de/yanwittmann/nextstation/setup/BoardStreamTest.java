@@ -0,0 +1,57 @@
+package de.yanwittmann.nextstation.setup;
+
+import de.yanwittmann.nextstation.util.GeneralUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BoardStreamTest {
+
+    private static final LongFunction<BoardTemplates> LONDON_STATIONS = seed -> BoardTemplates.start(seed)
+            .districtsLondon()
+            .stationsFullyFillEvenlyDistributed()
+            .stationsRemovePercent(0.47f, Map.of(BoardTemplates.LooseDistrictDefinition.CENTERMOST, 9), 4);
+
+    @Test
+    public void parallelStreamKeepsPerElementSeeds() {
+        final List<Long> expectedSeeds = LongStream.range(0, 12).map(i -> GeneralUtil.derivedSeed(7, i)).boxed().collect(Collectors.toList());
+
+        assertEquals(expectedSeeds, BoardStream.templates(LONDON_STATIONS, 7).limit(12)
+                .map(BoardTemplates::getSeed).collect(Collectors.toList()));
+        assertEquals(expectedSeeds, BoardStream.templates(LONDON_STATIONS, 7).parallel().limit(12)
+                .map(BoardTemplates::getSeed).collect(Collectors.toList()));
+
+        final List<Integer> sequentialScores = BoardStream.templates(LONDON_STATIONS, 7, 12)
+                .map(BoardOptimizer.STATION_SPREAD).collect(Collectors.toList());
+        final List<Integer> parallelScores = BoardStream.templates(LONDON_STATIONS, 7, 12).parallel()
+                .map(BoardOptimizer.STATION_SPREAD).collect(Collectors.toList());
+        assertEquals(sequentialScores, parallelScores);
+    }
+
+    @Test
+    public void parallelFilterLimitOnInfiniteStreamStartsAtTheFront() {
+        final Set<Long> generatedSeeds = ConcurrentHashMap.newKeySet();
+        final LongFunction<BoardTemplates> recording = seed -> {
+            generatedSeeds.add(seed);
+            return BoardTemplates.start(seed);
+        };
+        final List<Long> sequential = BoardStream.templates(recording, 3)
+                .map(BoardTemplates::getSeed).filter(seed -> seed % 3 == 0).limit(20).collect(Collectors.toList());
+        final List<Long> parallel = BoardStream.templates(recording, 3).parallel()
+                .map(BoardTemplates::getSeed).filter(seed -> seed % 3 == 0).limit(20).collect(Collectors.toList());
+        assertEquals(sequential, parallel);
+
+        // no split may jump far ahead of the elements that are actually needed
+        final Set<Long> frontSeeds = LongStream.range(0, 1 << 16).map(i -> GeneralUtil.derivedSeed(3, i)).boxed().collect(Collectors.toSet());
+        generatedSeeds.removeAll(frontSeeds);
+        assertEquals(Set.of(), generatedSeeds);
+    }
+}
@@ -0,0 +1,93 @@
+package de.yanwittmann.nextstation.setup;
+
+import de.yanwittmann.nextstation.model.GameBoard;
+import de.yanwittmann.nextstation.model.board.BoardDistrict;
+import de.yanwittmann.nextstation.model.board.Station;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BoardTemplatesTest {
+
+    @Test
+    public void stationsRemovePercentMatchesCandidateScan() {
+        final Map<BoardTemplates.LooseDistrictDefinition, Integer> minStations = Map.of(BoardTemplates.LooseDistrictDefinition.CENTERMOST, 9);
+        for (long seed = 0; seed < 12; seed++) {
+            final BoardTemplates prefix = BoardTemplates.start(seed)
+                    .districtsLondon()
+                    .stationsFullyFillEvenlyDistributed();
+            // low minimums let districts run into them, the high removal percentage runs out of candidates
+            final float removePercent = seed % 3 == 2 ? 0.9f : 0.47f;
+            final int fallback = seed % 2 == 0 ? 4 : 1;
+
+            final GameBoard expected = removeByCandidateScan(prefix.fork(seed + 100), removePercent, minStations, fallback).getBoard();
+            final GameBoard actual = prefix.fork(seed + 100).stationsRemovePercent(removePercent, minStations, fallback).getBoard();
+
+            assertEquals(expected.getStations(), actual.getStations(), "seed " + seed);
+        }
+    }
+
+    /**
+     * The implementation before the neighbor graph: rescans all stations and their neighbors for every removal.
+     */
+    private static BoardTemplates removeByCandidateScan(BoardTemplates templates, float removePercent, Map<BoardTemplates.LooseDistrictDefinition, Integer> minStationsPerDistrictInput, int minStationsPerDistrictFallback) {
+        final GameBoard gameBoard = templates.getBoard();
+        final Map<BoardDistrict, Set<Station>> districtStations = gameBoard.computeStationsPerDistrict();
+        final int stationsToRemove = Math.round(gameBoard.getStations().size() * removePercent);
+        final Set<Station> removableStations = new LinkedHashSet<>(gameBoard.getStations());
+
+        final Map<BoardDistrict, Integer> minStationsPerDistrict = new HashMap<>();
+        for (Map.Entry<BoardTemplates.LooseDistrictDefinition, Integer> entry : minStationsPerDistrictInput.entrySet()) {
+            final BoardDistrict district = entry.getKey().getDistrictFinder().apply(gameBoard);
+            if (district != null) {
+                minStationsPerDistrict.put(district, entry.getValue());
+            }
+        }
+        for (BoardDistrict district : districtStations.keySet()) {
+            minStationsPerDistrict.putIfAbsent(district, minStationsPerDistrictFallback);
+        }
+
+        removableStations.removeIf(station -> {
+            final BoardDistrict district = gameBoard.findDistrict(station);
+            return district != null && districtStations.get(district).size() <= minStationsPerDistrict.get(district);
+        });
+
+        for (int i = 0; i < stationsToRemove; i++) {
+            final List<Station> candidates = removableStations.stream()
+                    .filter(station -> templates.findNeighbors(station).stream().allMatch(neighbor -> templates.findNeighbors(neighbor).size() > 3))
+                    .filter(station -> {
+                        final BoardDistrict district = gameBoard.findDistrict(station);
+                        return district == null || districtStations.get(district).size() > minStationsPerDistrict.get(district);
+                    })
+                    .collect(Collectors.toList());
+            if (candidates.isEmpty()) {
+                break;
+            }
+            candidates.sort(Comparator.comparingInt(station -> {
+                final BoardDistrict district = gameBoard.findDistrict(station);
+                return district == null ? 0 : -districtStations.get(district).size();
+            }));
+
+            final Station stationToRemove = candidates.get(templates.getRandom().nextInt(Math.min(candidates.size(), 3)));
+            removableStations.remove(stationToRemove);
+            gameBoard.removeStation(stationToRemove);
+
+            final BoardDistrict district = gameBoard.findDistrict(stationToRemove);
+            if (district != null) {
+                districtStations.get(district).remove(stationToRemove);
+                if (districtStations.get(district).size() <= minStationsPerDistrict.get(district)) {
+                    removableStations.removeAll(districtStations.get(district));
+                }
+            }
+        }
+        return templates;
+    }
+}
@@ -0,0 +1,43 @@
+package de.yanwittmann.nextstation.setup;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParetoArchiveTest {
+
+    private static final List<BoardObjective> OBJECTIVES = List.of(
+            BoardObjective.maximize("a", board -> 0),
+            BoardObjective.minimize("b", board -> 0).withWeight(2)
+    );
+
+    @Test
+    public void keepsOnlyNonDominatedBoards() {
+        final ParetoArchive archive = new ParetoArchive(OBJECTIVES, 10);
+        assertTrue(archive.offer(null, new int[]{5, 5}, 0));
+        assertFalse(archive.offer(null, new int[]{4, 6}, 1));
+        assertFalse(archive.offer(null, new int[]{5, 5}, 2));
+        assertTrue(archive.offer(null, new int[]{6, 6}, 3));
+        assertTrue(archive.offer(null, new int[]{6, 4}, 4));
+
+        assertEquals(List.of(4), archive.getEntries().stream().map(ParetoArchive.Entry::getIteration).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void dropsTheMostCrowdedBoardWhenFull() {
+        final ParetoArchive archive = new ParetoArchive(OBJECTIVES, 3);
+        archive.offer(null, new int[]{0, 0}, 0);
+        archive.offer(null, new int[]{10, 10}, 1);
+        archive.offer(null, new int[]{4, 4}, 2);
+        assertTrue(archive.offer(null, new int[]{5, 5}, 3));
+
+        assertEquals(List.of(0, 1, 3), archive.getEntries().stream().map(ParetoArchive.Entry::getIteration).sorted().collect(Collectors.toList()));
+        // a - 2 * b is the highest for the first board
+        assertEquals(0, archive.getBestWeighted().getIteration());
+    }
+}
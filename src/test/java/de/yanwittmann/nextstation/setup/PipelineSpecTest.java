@@ -0,0 +1,41 @@
+package de.yanwittmann.nextstation.setup;
+
+import de.yanwittmann.nextstation.model.GameBoard;
+import de.yanwittmann.nextstation.util.LruCache;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PipelineSpecTest {
+
+    @Test
+    public void cachedPrefixMatchesFullRun() throws IOException {
+        final PipelineSpec spec = PipelineSpec.readResource("/pipelines/london.json");
+        spec.getStages().get(2).setCache(true);
+        final LruCache<String, GameBoard> cache = new LruCache<>(16);
+
+        final LongFunction<BoardTemplates> uncached = spec.compile().asGenerator();
+        final LongFunction<BoardTemplates> cached = spec.compile(cache).asGenerator();
+        for (long seed = 0; seed < 4; seed++) {
+            final GameBoard expected = uncached.apply(seed).getBoard();
+            for (int run = 0; run < 2; run++) {
+                final GameBoard actual = cached.apply(seed).getBoard();
+                assertEquals(expected.getStations(), actual.getStations());
+                assertEquals(expected.getConnections(), actual.getConnections());
+                assertEquals(expected.getIntersections(), actual.getIntersections());
+                assertEquals(expected.getRiverLayout(), actual.getRiverLayout());
+            }
+        }
+        assertEquals(4, cache.getMisses());
+        assertEquals(4, cache.getHits());
+    }
+
+    @Test
+    public void unknownStageIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PipelineSpec.parse("{\"stages\": [{\"name\": \"districtsAtlantis\"}]}"));
+    }
+}
@@ -0,0 +1,109 @@
+package de.yanwittmann.nextstation.setup;
+
+import de.yanwittmann.nextstation.model.GameBoard;
+import de.yanwittmann.nextstation.model.board.Station;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StationSpreadScorerTest {
+
+    @Test
+    public void matchesSortingAllStations() {
+        final StationSpreadScorer scorer = new StationSpreadScorer(3);
+        final SplittableRandom random = new SplittableRandom(42);
+        for (int run = 0; run < 200; run++) {
+            final int width = 1 + random.nextInt(40);
+            final int height = 1 + random.nextInt(40);
+            final int count = random.nextInt(120);
+            final List<Station> stations = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                // also off the board and on top of each other, some of them equal
+                stations.add(Station.ofType(random.nextInt(-3, width + 3), random.nextInt(-3, height + 3), Station.StationType.values()[random.nextInt(2)]));
+            }
+            assertEquals(referenceScore(stations), scorer.score(stations), "run " + run);
+        }
+    }
+
+    @Test
+    public void matchesSortingAllStationsOnGeneratedBoards() {
+        for (int seed = 0; seed < 5; seed++) {
+            final BoardTemplates board = BoardTemplates.start(seed)
+                    .districtsLondon()
+                    .stationsFullyFillEvenlyDistributed()
+                    .stationsRemovePercent(0.47f, Map.of(BoardTemplates.LooseDistrictDefinition.CENTERMOST, 9), 4);
+            assertEquals(referenceScore(board.getBoard().getStations()), BoardOptimizer.STATION_SPREAD.apply(board));
+        }
+    }
+
+    @Test
+    public void deltasMatchRescoring() {
+        final StationSpreadScorer scorer = new StationSpreadScorer(3);
+        final SplittableRandom random = new SplittableRandom(7);
+        for (int run = 0; run < 20; run++) {
+            final BoardTemplates board = BoardTemplates.start(run);
+            final GameBoard gameBoard = board.getBoard();
+            gameBoard.setWidth(4 + random.nextInt(20));
+            gameBoard.setHeight(4 + random.nextInt(20));
+            final int count = 2 + random.nextInt(60);
+            for (int i = 0; i < count; i++) {
+                gameBoard.addStation(random.nextInt(gameBoard.getWidth()), random.nextInt(gameBoard.getHeight()), Station.StationType.values()[random.nextInt(2)]);
+            }
+
+            final IncrementalBoardScorer.Evaluation evaluation = scorer.evaluate(board);
+            assertEquals(referenceScore(gameBoard.getStations()), evaluation.getScore());
+
+            for (int step = 0; step < 200 && gameBoard.getStations().size() > 1; step++) {
+                final Station station = gameBoard.getStations().get(random.nextInt(gameBoard.getStations().size()));
+                final int before = evaluation.getScore();
+                final int kind = random.nextInt(10);
+                final int delta;
+                if (kind == 0) {
+                    delta = evaluation.removeDelta(station);
+                    assertEquals(delta, evaluation.remove(station));
+                    gameBoard.removeStation(station);
+                } else if (kind < 3) {
+                    final Station.StationType type = Station.StationType.values()[random.nextInt(2)];
+                    delta = evaluation.typeChangeDelta(station, type);
+                    assertEquals(delta, evaluation.changeType(station, type));
+                    station.setType(type);
+                } else {
+                    // also off the board and onto other stations
+                    final int x = random.nextInt(-2, gameBoard.getWidth() + 2);
+                    final int y = random.nextInt(-2, gameBoard.getHeight() + 2);
+                    delta = evaluation.moveDelta(station, x, y);
+                    assertEquals(delta, evaluation.move(station, x, y));
+                    gameBoard.moveStation(station, x, y);
+                }
+                final int expected = referenceScore(gameBoard.getStations());
+                assertEquals(expected - before, delta, "run " + run + " step " + step);
+                assertEquals(expected, evaluation.getScore(), "run " + run + " step " + step);
+            }
+        }
+    }
+
+    /**
+     * The original implementation of {@link BoardOptimizer#STATION_SPREAD}.
+     */
+    private static int referenceScore(List<Station> stations) {
+        int score = 0;
+        for (Station station : stations) {
+            List<Station> closestStations = stations.stream()
+                    .filter(otherStation -> !otherStation.equals(station))
+                    .sorted(Comparator.comparingInt(otherStation -> (int) Math.pow(otherStation.getX() - station.getX(), 2) + (int) Math.pow(otherStation.getY() - station.getY(), 2)))
+                    .limit(3)
+                    .collect(Collectors.toList());
+            score += closestStations.stream()
+                    .mapToInt(otherStation -> (int) Math.pow(otherStation.getX() - station.getX(), 2) + (int) Math.pow(otherStation.getY() - station.getY(), 2))
+                    .sum();
+        }
+        return score;
+    }
+}
@@ -0,0 +1,134 @@
+package de.yanwittmann.nextstation.setup.island;
+
+import de.yanwittmann.nextstation.model.GameBoard;
+import de.yanwittmann.nextstation.setup.BoardOptimizer;
+import de.yanwittmann.nextstation.setup.BoardTemplates;
+import de.yanwittmann.nextstation.util.GeneralUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IslandModelTest {
+
+    @Test
+    public void messagesSurviveFraming() throws IOException {
+        final List<IslandMessage> messages = Arrays.asList(
+                IslandMessage.hello(3),
+                IslandMessage.migrant(1, 7, -42, "{\"stations\": [\"ü→\"]}"),
+                IslandMessage.migrant(0, 0, 0, ""),
+                IslandMessage.done(2),
+                IslandMessage.shutdown());
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        for (IslandMessage message : messages) {
+            message.write(out);
+        }
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (IslandMessage message : messages) {
+            assertEquals(message, IslandMessage.read(in));
+        }
+        assertThrows(EOFException.class, () -> IslandMessage.read(in));
+
+        // the hello frame is a bare header, the migrant after it is cut off within its board
+        final int header = 1 + 4 * 4;
+        final DataInputStream truncatedIn = new DataInputStream(new ByteArrayInputStream(Arrays.copyOf(bytes.toByteArray(), header + header + 10)));
+        assertEquals(messages.get(0), IslandMessage.read(truncatedIn));
+        assertThrows(EOFException.class, () -> IslandMessage.read(truncatedIn));
+
+        final ByteArrayOutputStream invalid = new ByteArrayOutputStream();
+        final DataOutputStream invalidOut = new DataOutputStream(invalid);
+        invalidOut.writeByte(IslandMessage.Type.MIGRANT.ordinal());
+        invalidOut.writeInt(0);
+        invalidOut.writeInt(0);
+        invalidOut.writeInt(0);
+        invalidOut.writeInt(-5);
+        assertThrows(IOException.class, () -> IslandMessage.read(new DataInputStream(new ByteArrayInputStream(invalid.toByteArray()))));
+    }
+
+    @Test
+    public void coordinatorRelaysBoardsAroundTheRing() throws Exception {
+        final String board = BoardTemplates.start(1).districtsLondon().stationsFullyFillEvenlyDistributed().getBoard().serialize();
+        try (IslandCoordinator coordinator = new IslandCoordinator(0, true)) {
+            final FutureTask<GameBoard> run = start(() -> coordinator.run(2));
+            try (Socket first = connect(coordinator, 0); Socket second = connect(coordinator, 1)) {
+                final DataInputStream firstIn = new DataInputStream(new BufferedInputStream(first.getInputStream()));
+                final DataInputStream secondIn = new DataInputStream(new BufferedInputStream(second.getInputStream()));
+
+                final IslandMessage fromFirst = IslandMessage.migrant(0, 0, 20, board);
+                fromFirst.write(new DataOutputStream(first.getOutputStream()));
+                assertEquals(fromFirst, IslandMessage.read(secondIn));
+
+                final IslandMessage fromSecond = IslandMessage.migrant(1, 0, 10, "{}");
+                fromSecond.write(new DataOutputStream(second.getOutputStream()));
+                assertEquals(fromSecond, IslandMessage.read(firstIn));
+
+                IslandMessage.done(0).write(new DataOutputStream(first.getOutputStream()));
+                IslandMessage.done(1).write(new DataOutputStream(second.getOutputStream()));
+                assertEquals(IslandMessage.Type.SHUTDOWN, IslandMessage.read(firstIn).getType());
+                assertEquals(IslandMessage.Type.SHUTDOWN, IslandMessage.read(secondIn).getType());
+            }
+            assertEquals(GameBoard.deserialize(board).getStations(), run.get(1, TimeUnit.MINUTES).getStations());
+        }
+    }
+
+    @Test
+    public void workersRunEpochsAgainstTheCoordinator() throws Exception {
+        final LongFunction<BoardTemplates> generator = IslandWorker.readPipeline(IslandWorker.DEFAULT_PIPELINE).compile().asGenerator();
+        final IslandWorker.IslandOptions options = GeneralUtil.with(new IslandWorker.IslandOptions(),
+                o -> o.setEpochs(2),
+                o -> o.setRestartsPerEpoch(2),
+                o -> o.getAnnealing().setMaxIterations(100));
+
+        try (IslandCoordinator coordinator = new IslandCoordinator(0, true)) {
+            final FutureTask<GameBoard> run = start(() -> coordinator.run(2));
+            final List<FutureTask<GameBoard>> workers = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                final IslandWorker worker = new IslandWorker(coordinator.getPort(), i, generator, BoardOptimizer.STATION_SPREAD, true, options, GeneralUtil.derivedSeed(9, i));
+                workers.add(start(worker::run));
+            }
+
+            final GameBoard best = run.get(1, TimeUnit.MINUTES);
+            assertNotNull(best);
+            // a worker never sends a worse board than before, so the best board is the final board of one of them
+            int bestWorkerScore = Integer.MIN_VALUE;
+            for (FutureTask<GameBoard> worker : workers) {
+                bestWorkerScore = Math.max(bestWorkerScore, BoardOptimizer.STATION_SPREAD.apply(BoardTemplates.start(worker.get(1, TimeUnit.MINUTES))));
+            }
+            assertEquals(bestWorkerScore, BoardOptimizer.STATION_SPREAD.apply(BoardTemplates.start(best)));
+        }
+    }
+
+    private static Socket connect(IslandCoordinator coordinator, int workerIndex) throws IOException {
+        final Socket socket = new Socket(InetAddress.getLoopbackAddress(), coordinator.getPort());
+        IslandMessage.hello(workerIndex).write(new DataOutputStream(socket.getOutputStream()));
+        return socket;
+    }
+
+    private static <T> FutureTask<T> start(Callable<T> callable) {
+        final FutureTask<T> task = new FutureTask<>(callable);
+        final Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        thread.start();
+        return task;
+    }
+}
@@ -0,0 +1,48 @@
+package de.yanwittmann.nextstation.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongHashSetTest {
+
+    @Test
+    public void zeroKeyIsTrackedSeparately() {
+        final LongHashSet set = new LongHashSet();
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.contains(0));
+        assertFalse(set.contains(1));
+        assertEquals(1, set.size());
+
+        set.clear();
+        assertFalse(set.contains(0));
+        assertEquals(0, set.size());
+    }
+
+    @Test
+    public void matchesHashSetWhileGrowing() {
+        final SplittableRandom random = new SplittableRandom(3);
+        final LongHashSet set = new LongHashSet(2);
+        final Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 5000; i++) {
+            // few distinct values, so that duplicates and collisions in the probe sequences are common
+            final long key = random.nextBoolean() ? random.nextInt(1000) : (long) random.nextInt(64) << 32;
+            assertEquals(expected.add(key), set.add(key));
+        }
+        assertEquals(expected.size(), set.size());
+        for (long key = -10; key < 1010; key++) {
+            assertEquals(expected.contains(key), set.contains(key), "key " + key);
+        }
+        for (long key : expected) {
+            assertTrue(set.contains(key));
+        }
+    }
+}
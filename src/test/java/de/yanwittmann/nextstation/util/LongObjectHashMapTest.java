@@ -0,0 +1,54 @@
+package de.yanwittmann.nextstation.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class LongObjectHashMapTest {
+
+    @Test
+    public void overwritingKeepsTheSlotOfTheKey() {
+        final LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        // equal values under different keys, only the slot of the overwritten key may change
+        final String first = new String("value");
+        final String second = new String("value");
+        assertNull(map.put(1, first));
+        assertNull(map.put(2, second));
+
+        final String replacement = "other";
+        assertSame(second, map.put(2, replacement));
+        assertSame(first, map.get(1));
+        assertSame(replacement, map.get(2));
+        assertSame(first, map.values().get(0));
+        assertSame(replacement, map.values().get(1));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void matchesLinkedHashMapWhileGrowing() {
+        final SplittableRandom random = new SplittableRandom(5);
+        final LongObjectHashMap<Integer> map = new LongObjectHashMap<>(2);
+        final Map<Long, Integer> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            final long key = random.nextBoolean() ? random.nextInt(1000) - 500 : (long) random.nextInt(64) << 32;
+            // few distinct values, so that many entries hold equal values
+            final Integer value = random.nextInt(4);
+            assertEquals(expected.put(key, value), map.put(key, value));
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), map.values());
+        for (long key = -510; key < 1010; key++) {
+            assertEquals(expected.get(key), map.get(key), "key " + key);
+        }
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+}
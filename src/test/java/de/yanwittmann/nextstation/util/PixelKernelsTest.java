@@ -0,0 +1,131 @@
+package de.yanwittmann.nextstation.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static de.yanwittmann.nextstation.util.TextureAccessTest.assertPixelsEqual;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class PixelKernelsTest {
+
+    private static final List<TextureAccess.TexturesIndex> TEXTURES = List.of(
+            TextureAccess.TexturesIndex.STATION_BASE_REGULAR,
+            TextureAccess.TexturesIndex.STATION_BASE_MONUMENT,
+            TextureAccess.TexturesIndex.STATION_SHAPE_PENTAGON,
+            TextureAccess.TexturesIndex.CARD_SYMBOL_JOKER,
+            TextureAccess.TexturesIndex.SCORE_CIRCLE);
+
+    @Test
+    public void tintsMatchGraphicsReference() {
+        for (TextureAccess.TexturesIndex texture : TEXTURES) {
+            final BufferedImage image = texture.get().getImage();
+            // once on the decoded image and once on an already tinted one, as the station textures do
+            final BufferedImage tinted = referenceTintOnlyColorWithThreshold(image, Color.WHITE, 1.0f, Color.BLUE, 200);
+            for (BufferedImage source : List.of(image, tinted)) {
+                assertPixelsEqual(referenceTintNonTransparent(source, Color.WHITE, 1.0f),
+                        PixelKernels.tintNonTransparent(source, Color.WHITE, 1.0f));
+                assertPixelsEqual(referenceTintNonTransparent(source, new Color(255, 16, 100), 0.8f),
+                        PixelKernels.tintNonTransparent(source, new Color(255, 16, 100), 0.8f));
+                assertPixelsEqual(referenceTintNonTransparent(source, new Color(12, 34, 56, 100), 0.5f),
+                        PixelKernels.tintNonTransparent(source, new Color(12, 34, 56, 100), 0.5f));
+                assertPixelsEqual(referenceTintOnlyColorWithThreshold(source, Color.WHITE, 1.0f, Color.BLUE, 200),
+                        PixelKernels.tintOnlyColorWithThreshold(source, Color.WHITE, 1.0f, Color.BLUE, 200));
+                assertPixelsEqual(referenceTintOnlyColorWithThreshold(source, new Color(255, 145, 35), 0.8f, Color.WHITE, 50),
+                        PixelKernels.tintOnlyColorWithThreshold(source, new Color(255, 145, 35), 0.8f, Color.WHITE, 50));
+            }
+        }
+    }
+
+    @Test
+    public void visibleBoundsMatchPixelScan() {
+        for (TextureAccess.TexturesIndex texture : TEXTURES) {
+            final BufferedImage image = texture.get().getImage();
+            assertArrayEquals(referenceVisibleBounds(image), PixelKernels.visibleBounds(image), texture.name());
+        }
+        final BufferedImage empty = new BufferedImage(7, 5, BufferedImage.TYPE_INT_ARGB);
+        assertArrayEquals(new int[]{0, 0, 7, 5}, PixelKernels.visibleBounds(empty));
+    }
+
+    // the per pixel Graphics2D implementations the kernels replaced
+
+    private static BufferedImage referenceTintNonTransparent(BufferedImage image, Color tintColor, float tintOpacity) {
+        final BufferedImage tintedImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = tintedImage.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                if ((image.getRGB(x, y) & 0xFF000000) != 0) {
+                    graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, tintOpacity));
+                    graphics.setColor(tintColor);
+                    graphics.fillRect(x, y, 1, 1);
+                }
+            }
+        }
+        graphics.dispose();
+        return tintedImage;
+    }
+
+    private static BufferedImage referenceTintOnlyColorWithThreshold(BufferedImage image, Color tintColor, float tintOpacity, Color refColor, int threshold) {
+        final BufferedImage tintedImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = tintedImage.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, tintOpacity));
+        graphics.setColor(tintColor);
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                final int color = image.getRGB(x, y);
+                if (Math.abs(((color >> 16) & 0xFF) - refColor.getRed()) <= threshold
+                    && Math.abs(((color >> 8) & 0xFF) - refColor.getGreen()) <= threshold
+                    && Math.abs((color & 0xFF) - refColor.getBlue()) <= threshold) {
+                    graphics.fillRect(x, y, 1, 1);
+                }
+            }
+        }
+        graphics.dispose();
+        return tintedImage;
+    }
+
+    private static int[] referenceVisibleBounds(BufferedImage image) {
+        int top = 0, left = 0, right = image.getWidth(), bottom = image.getHeight();
+        rows:
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if ((image.getRGB(x, y) & 0xFF000000) != 0) {
+                    top = y;
+                    break rows;
+                }
+            }
+        }
+        rows:
+        for (int y = image.getHeight() - 1; y >= 0; y--) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if ((image.getRGB(x, y) & 0xFF000000) != 0) {
+                    bottom = y;
+                    break rows;
+                }
+            }
+        }
+        columns:
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                if ((image.getRGB(x, y) & 0xFF000000) != 0) {
+                    left = x;
+                    break columns;
+                }
+            }
+        }
+        columns:
+        for (int x = image.getWidth() - 1; x >= 0; x--) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                if ((image.getRGB(x, y) & 0xFF000000) != 0) {
+                    right = x;
+                    break columns;
+                }
+            }
+        }
+        return new int[]{left, top, right, bottom};
+    }
+}
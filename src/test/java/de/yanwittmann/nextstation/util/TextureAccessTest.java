@@ -0,0 +1,155 @@
+package de.yanwittmann.nextstation.util;
+
+import de.yanwittmann.nextstation.model.score.ScoreContributor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TextureAccessTest {
+
+    @Test
+    public void cachedImagesAreIndependentCopies() throws IOException {
+        final String path = TextureAccess.TexturesIndex.STATION_BASE_REGULAR.getPath();
+        final BufferedImage decoded = TextureAccess.getImage(path);
+
+        final BufferedImage first = TextureAccess.getImageOrFallback(path);
+        first.setRGB(0, 0, 0xFF123456);
+        final BufferedImage second = TextureAccess.getImageOrFallback(path);
+
+        assertNotSame(first, second);
+        assertEquals(decoded.getType(), second.getType());
+        assertPixelsEqual(decoded, second);
+    }
+
+    @Test
+    public void texturesHandOutCopiesOfTheCachedImages() {
+        final TextureAccess.TextureData decoded = TextureAccess.TexturesIndex.STATION_BASE_REGULAR.get();
+        final TextureAccess.TextureData composed = decoded.tintNonTransparent(new Color(90, 80, 70), 0.5f);
+        for (TextureAccess.TextureData texture : Arrays.asList(decoded, composed)) {
+            final BufferedImage before = TextureAccess.copyImage(texture.sharedImage());
+            final BufferedImage handedOut = texture.getImage();
+            assertNotSame(texture.sharedImage(), handedOut);
+            handedOut.setRGB(0, 0, 0xFF123456);
+            final Graphics2D graphics = handedOut.createGraphics();
+            graphics.fillRect(0, 0, handedOut.getWidth(), handedOut.getHeight());
+            graphics.dispose();
+            assertPixelsEqual(before, texture.getImage());
+        }
+    }
+
+    @Test
+    public void overlayLeavesInputsUnchanged() {
+        final TextureAccess.TextureData base = TextureAccess.TexturesIndex.STATION_BASE_REGULAR.get();
+        final TextureAccess.TextureData symbol = TextureAccess.TexturesIndex.STATION_SHAPE_CIRCLE.get();
+        final BufferedImage baseBefore = TextureAccess.copyImage(base.getImage());
+        final BufferedImage symbolBefore = TextureAccess.copyImage(symbol.getImage());
+
+        final TextureAccess.TextureData combined = base.overlay(symbol);
+        base.overlay(symbol, 4, 4, 10, 10);
+
+        assertNotSame(base.getImage(), combined.getImage());
+        assertPixelsEqual(baseBefore, base.getImage());
+        assertPixelsEqual(symbolBefore, symbol.getImage());
+        assertPixelsEqual(baseBefore, TextureAccess.TexturesIndex.STATION_BASE_REGULAR.get().getImage());
+    }
+
+    @Test
+    public void composedTexturesAreRenderedOncePerPath() {
+        final Color tint = new Color(12, 34, 56);
+        final TextureAccess.TextureData first = TextureAccess.TexturesIndex.STATION_BASE_REGULAR.get().tintNonTransparent(tint, 0.5f);
+        final TextureAccess.TextureData second = TextureAccess.TexturesIndex.STATION_BASE_REGULAR.get().tintNonTransparent(tint, 0.5f);
+
+        assertEquals(first, second);
+        assertSame(first.sharedImage(), second.sharedImage());
+        assertNotEquals(first.addText("1", new Font("Arial", Font.BOLD, 70), Color.WHITE, 0.5f, 0.5f, "center").getPath(),
+                first.addText("1", new Font("Arial", Font.BOLD, 40), Color.WHITE, 0.5f, 0.5f, "center").getPath());
+
+        final Font font = new Font("Arial", Font.BOLD, 40);
+        final Set<String> textPaths = new LinkedHashSet<>();
+        for (Font variant : Arrays.asList(font, font.deriveFont(40.5f), font.deriveFont(AffineTransform.getShearInstance(0.3, 0)))) {
+            textPaths.add(first.addText("1", variant, Color.WHITE, 0.5f, 0.5f, "center").getPath());
+        }
+        assertEquals(3, textPaths.size());
+    }
+
+    @Test
+    public void multiplierBadgeIsLaidOutWhenRendered() {
+        // a tint no other test uses, so that the base texture has not been rendered yet
+        final TextureAccess.TextureData base = TextureAccess.TexturesIndex.SCORE_DISTRICTS_COUNT.get().tintNonTransparent(new Color(1, 2, 3), 0.25f);
+        final ScoreContributor contributor = new ScoreContributor("badge-test") {
+            @Override
+            protected TextureAccess.TextureData getBaseTexture() {
+                return base;
+            }
+        };
+        contributor.setMultiplier(3);
+
+        final TextureAccess.TextureData texture = contributor.getTexture();
+        texture.fileHash();
+        assertFalse(TextureAccess.isRendered(base));
+        assertFalse(TextureAccess.isRendered(texture));
+
+        // the layout the contributor used to build by hand from the rendered width
+        final int size = (int) (base.getImage().getWidth() / 100f * 50);
+        final TextureAccess.TextureData circle = TextureAccess.TexturesIndex.SCORE_CIRCLE.get()
+                .tintNonTransparent(contributor.getMultiplierColor(), 0.8f)
+                .addText("3", new Font("Arial", Font.BOLD, 70), Color.WHITE, 0.5f, 0.42f, "center")
+                .scale(size, size);
+        final TextureAccess.TextureData expected = base.pad(new Color(0, 0, 0, 0), 20, size / 2 + 1, 0, 0)
+                .overlay(circle, base.getImage().getWidth() - size / 2, 0, size, size);
+        assertPixelsEqual(expected.getImage(), texture.getImage());
+    }
+
+    @Test
+    public void writeDistinctWritesEachTextureOnce(@TempDir Path dir) throws IOException {
+        final TextureAccess.TextureData regular = TextureAccess.TexturesIndex.STATION_BASE_REGULAR.get();
+        final TextureAccess.TextureData tinted = regular.tintNonTransparent(new Color(200, 10, 10), 0.5f);
+        final File stale = dir.resolve(regular.fileHash() + ".png").toFile();
+        Files.writeString(stale.toPath(), "stale");
+
+        final Set<File> files = TextureAccess.TextureData.writeDistinct(Arrays.asList(regular, tinted, null, tinted, regular), dir.toFile(), 4);
+
+        assertEquals(new LinkedHashSet<>(Arrays.asList(stale, dir.resolve(tinted.fileHash() + ".png").toFile())), files);
+        assertPixelsEqual(regular.getImage(), ImageIO.read(stale));
+        assertPixelsEqual(tinted.getImage(), ImageIO.read(dir.resolve(tinted.fileHash() + ".png").toFile()));
+        try (Stream<Path> written = Files.list(dir)) {
+            assertEquals(2, written.count());
+        }
+
+        // "Aa" and "BB" have the same string hash, so both texts would end up in the same file
+        final Font font = new Font("Arial", Font.BOLD, 40);
+        final TextureAccess.TextureData first = regular.addText("Aa", font, Color.WHITE, 0.5f, 0.5f, "center");
+        final TextureAccess.TextureData second = regular.addText("BB", font, Color.WHITE, 0.5f, 0.5f, "center");
+        assertEquals(first.fileHash(), second.fileHash());
+        assertThrows(IllegalStateException.class, () -> TextureAccess.TextureData.writeDistinct(Arrays.asList(first, second), dir.toFile(), 2));
+    }
+
+    static void assertPixelsEqual(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+}